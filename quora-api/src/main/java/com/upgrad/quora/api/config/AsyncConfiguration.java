@@ -0,0 +1,42 @@
+package com.upgrad.quora.api.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * This Configuration runs asynchronously written responses, i.e. streamed listings, on a size capped thread pool with a bounded queue.
+ * Without it Spring MVC starts a new thread for every streamed response, so long running streams could pile up without limit.
+ * A stream started while the queue is full is rejected with a 503 by the RestExceptionHandler.
+ */
+@Configuration
+public class AsyncConfiguration implements WebMvcConfigurer {
+
+    @Value("${quora.streaming.pool-size:8}")
+    private int poolSize;
+
+    @Value("${quora.streaming.queue-capacity:32}")
+    private int queueCapacity;
+
+    @Value("${spring.mvc.async.request-timeout:300000}")
+    private long requestTimeoutMillis;
+
+    @Bean
+    public ThreadPoolTaskExecutor streamingTaskExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("streaming-");
+        return executor;
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(streamingTaskExecutor());
+        configurer.setDefaultTimeout(requestTimeoutMillis);
+    }
+}
@@ -1,7 +1,14 @@
 package com.upgrad.quora.api.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.upgrad.quora.api.model.UserDeleteResponse;
+import com.upgrad.quora.api.model.UserImportResponse;
+import com.upgrad.quora.api.model.UserImportRow;
 import com.upgrad.quora.db.entity.UserEntity;
+import com.upgrad.quora.db.util.UuidCodec;
+import com.upgrad.quora.service.business.IdGenerator;
+import com.upgrad.quora.service.business.UserImportResult;
+import com.upgrad.quora.service.business.UserImportService;
 import com.upgrad.quora.service.business.UserService;
 import com.upgrad.quora.service.constants.UserStatus;
 import com.upgrad.quora.service.exception.AuthorizationFailedException;
@@ -14,6 +21,13 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletRequest;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
 @RestController
 @RequestMapping("/admin")
 public class AdminController {
@@ -21,6 +35,15 @@ public class AdminController {
     @Autowired
     UserService userService;
 
+    @Autowired
+    UserImportService userImportService;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    IdGenerator idGenerator;
+
     /**
      * This is used to delete a specific user in the application. It takes authorization token and the user id  of the user and removes the user from the application.
      * @param userId Id of the user to be deleted
@@ -34,7 +57,39 @@ public class AdminController {
     public ResponseEntity<UserDeleteResponse> deleteUser (@PathVariable("userId") String userId, @RequestHeader("authorization") String authorization) throws AuthorizationFailedException, UserNotFoundException {
         String token = AppUtils.getBearerAuthToken(authorization);
         UserEntity user = userService.deleteUser(token, userId);
-        UserDeleteResponse response = new UserDeleteResponse().id(user.getUuid()).status(UserStatus.DELETED_OK.getStatus());
+        UserDeleteResponse response = new UserDeleteResponse().id(UuidCodec.format(user.getUuid())).status(UserStatus.DELETED_OK.getStatus());
         return new ResponseEntity<>(response, HttpStatus.OK);
     }
+
+    /**
+     * This is used to register many users at once. It takes authorization token of an admin and a file of users, and registers every valid user whose username and email are free.
+     * The file is read while it is uploaded, either as newline delimited JSON or as CSV with a header line, depending on the content type.
+     * @param authorization Authorization token from request header
+     * @param httpRequest current request, whose body is the file of users
+     * @return Response Entity with Http Status Code, number of accepted and rejected rows and the result of every row
+     * @throws AuthorizationFailedException if the authorization token is invalid, expired or not found
+     * @throws AuthorizationFailedException if the user is not an admin
+     * @throws IOException if the request body cannot be read
+     */
+    @RequestMapping(path = "/users/import", method = RequestMethod.POST, consumes = {"application/x-ndjson", "text/csv"}, produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    public ResponseEntity<UserImportResponse> importUsers(@RequestHeader("authorization") String authorization, HttpServletRequest httpRequest) throws AuthorizationFailedException, IOException {
+        String token = AppUtils.getBearerAuthToken(authorization);
+        boolean csv = MediaType.parseMediaType(httpRequest.getContentType()).isCompatibleWith(MediaType.valueOf("text/csv"));
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(httpRequest.getInputStream(), StandardCharsets.UTF_8))) {
+            List<UserImportResult> results = userImportService.importUsers(token, new UserImportReader(reader, objectMapper, idGenerator, csv));
+            UserImportResponse response = new UserImportResponse().accepted(0).rejected(0);
+            for (UserImportResult result : results) {
+                if (result.isAccepted()) {
+                    response.accepted(response.getAccepted() + 1);
+                }
+                else {
+                    response.rejected(response.getRejected() + 1);
+                }
+                response.addRowsItem(new UserImportRow().row(result.getRow()).userName(result.getUserName()).id(result.getUuid())
+                        .status(result.isAccepted() ? UserStatus.IMPORT_ACCEPTED.getStatus() : UserStatus.IMPORT_REJECTED.getStatus())
+                        .code(result.getCode()).message(result.getMessage()));
+            }
+            return new ResponseEntity<>(response, HttpStatus.OK);
+        }
+    }
 }
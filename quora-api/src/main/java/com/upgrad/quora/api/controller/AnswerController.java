@@ -1,11 +1,16 @@
 package com.upgrad.quora.api.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.upgrad.quora.api.model.*;
 import com.upgrad.quora.db.entity.AnswerEntity;
+import com.upgrad.quora.db.entity.QuestionEntity;
+import com.upgrad.quora.db.util.UuidCodec;
 import com.upgrad.quora.service.business.AnswerService;
+import com.upgrad.quora.service.business.IdGenerator;
 import com.upgrad.quora.service.constants.AnswerStatus;
 import com.upgrad.quora.service.exception.AnswerNotFoundException;
 import com.upgrad.quora.service.exception.AuthorizationFailedException;
+import com.upgrad.quora.service.exception.BulkRequestTooLargeException;
 import com.upgrad.quora.service.exception.InvalidQuestionException;
 import com.upgrad.quora.service.utils.AppUtils;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,11 +18,11 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.UUID;
 
 @RestController
 @RequestMapping("/")
@@ -26,6 +31,12 @@ public class AnswerController {
     @Autowired
     AnswerService answerService;
 
+    @Autowired
+    IdGenerator idGenerator;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
     /**
      * This is used to create an answer for a question in the application. It takes the questionId, answer details and authorization token and creates an answer for the input question.
      * @param questionId Question Id
@@ -42,9 +53,9 @@ public class AnswerController {
             AnswerEntity answer = new AnswerEntity();
             answer.setAnswer(request.getAnswer());
             answer.setDate(LocalDate.now());
-            answer.setUuid(UUID.randomUUID().toString());
+            answer.setUuid(idGenerator.nextId());
             answer = answerService.createAnswer(token, questionId, answer);
-            AnswerResponse response = new AnswerResponse().id(answer.getUuid()).status(AnswerStatus.ANSWER_CREATED.getStatus());
+            AnswerResponse response = new AnswerResponse().id(UuidCodec.format(answer.getUuid())).status(AnswerStatus.ANSWER_CREATED.getStatus());
             return new ResponseEntity<>(response, HttpStatus.CREATED);
         }
         catch(InvalidQuestionException e){
@@ -52,6 +63,32 @@ public class AnswerController {
         }
     }
 
+    /**
+     * This is used to create many answers for a question in a single request, for migrations and integrations. It takes the questionId, the answer details and authorization token and creates the answers in batches.
+     * @param questionId Question Id
+     * @param authorization Authorization token from request header
+     * @param requests Answer details
+     * @return Response entity with Http Status code, ids of the created answers and messages, in the order of the requests
+     * @throws AuthorizationFailedException if the authorization token is invalid, expired or not found
+     * @throws InvalidQuestionException if questionId is invalid (no such question exists)
+     * @throws BulkRequestTooLargeException if there are more answers than a single request may create
+     */
+    @RequestMapping(path = "/question/{questionId}/answer/bulk", method = RequestMethod.POST, consumes = MediaType.APPLICATION_JSON_UTF8_VALUE, produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    public ResponseEntity<List<AnswerResponse>> createAnswers(@PathVariable("questionId") String questionId, @RequestHeader("authorization") String authorization, @RequestBody List<AnswerRequest> requests) throws AuthorizationFailedException, InvalidQuestionException, BulkRequestTooLargeException {
+        String token = AppUtils.getBearerAuthToken(authorization);
+        List<AnswerEntity> answers = new ArrayList<>(requests.size());
+        for (AnswerRequest request : requests) {
+            AnswerEntity answer = new AnswerEntity();
+            answer.setAnswer(request.getAnswer());
+            answer.setDate(LocalDate.now());
+            answer.setUuid(idGenerator.nextId());
+            answers.add(answer);
+        }
+        List<AnswerResponse> response = new ArrayList<>(answers.size());
+        answerService.createAnswers(token, questionId, answers).forEach(answer -> response.add(new AnswerResponse().id(UuidCodec.format(answer.getUuid())).status(AnswerStatus.ANSWER_CREATED.getStatus())));
+        return new ResponseEntity<>(response, HttpStatus.CREATED);
+    }
+
     /**
      * This is used to edit an answer that has been posted by a user. Note, only the answer owner can edit an answer. It takes answerId, answer content and authorization token to find and update the answer in the database.
      * @param answerId id of the answer to be edited
@@ -64,10 +101,8 @@ public class AnswerController {
     @RequestMapping(path = "/answer/edit/{answerId}", method = RequestMethod.PUT, consumes = MediaType.APPLICATION_JSON_UTF8_VALUE, produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
     public ResponseEntity<AnswerEditResponse> editAnswer(@PathVariable("answerId") String answerId, @RequestHeader("authorization") String authorization, AnswerEditRequest request) throws AuthorizationFailedException, AnswerNotFoundException {
         String token = AppUtils.getBearerAuthToken(authorization);
-        AnswerEntity answer = answerService.getAnswer(answerId);
-        answer.setAnswer(request.getContent());
-        answer = answerService.editAnswer(token,answer);
-        AnswerEditResponse response = new AnswerEditResponse().id(answer.getUuid()).status(AnswerStatus.ANSWER_EDITED.getStatus());
+        answerId = answerService.editAnswer(token,answerId,request.getContent());
+        AnswerEditResponse response = new AnswerEditResponse().id(answerId).status(AnswerStatus.ANSWER_EDITED.getStatus());
         return new ResponseEntity<>(response, HttpStatus.OK);
     }
 
@@ -83,8 +118,8 @@ public class AnswerController {
     @RequestMapping(path = "/answer/delete/{answerId}", method = RequestMethod.DELETE, produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
     public ResponseEntity<AnswerDeleteResponse> deleteAnswer(@PathVariable("answerId") String answerId, @RequestHeader("authorization") String authorization) throws AuthorizationFailedException, AnswerNotFoundException {
         String token = AppUtils.getBearerAuthToken(authorization);
-        AnswerEntity answer = answerService.deleteAnswer(token,answerId);
-        AnswerDeleteResponse response = new AnswerDeleteResponse().id(answer.getUuid()).status(AnswerStatus.ANSWER_DELETED.getStatus());
+        answerId = answerService.deleteAnswer(token,answerId);
+        AnswerDeleteResponse response = new AnswerDeleteResponse().id(answerId).status(AnswerStatus.ANSWER_DELETED.getStatus());
         return new ResponseEntity<>(response,HttpStatus.OK);
     }
 
@@ -100,7 +135,7 @@ public class AnswerController {
     public ResponseEntity<List<AnswerDetailsResponse>> getAllAnswersToQuestion(@PathVariable("questionId") String questionId, @RequestHeader("authorization") String authorization) throws AuthorizationFailedException, InvalidQuestionException {
         String token = AppUtils.getBearerAuthToken(authorization);
         List<AnswerDetailsResponse> response = new ArrayList<>();
-        answerService.getAnswersForQuestion(token, questionId).forEach (answer -> response.add(new AnswerDetailsResponse().id(answer.getUuid()).answerContent(answer.getAnswer()).questionContent(answer.getQuestion().getContent())));
+        answerService.getAnswersForQuestion(token, questionId).forEach (answer -> response.add(new AnswerDetailsResponse().id(UuidCodec.format(answer.getUuid())).answerContent(answer.getAnswer()).questionContent(answer.getQuestionContent())));
         if(response.isEmpty()){
             return new ResponseEntity<>(response,HttpStatus.NO_CONTENT);
         }
@@ -108,4 +143,21 @@ public class AnswerController {
             return new ResponseEntity<>(response,HttpStatus.OK);
         }
     }
+
+    /**
+     * This is used to fetch every answer posted for a specific question in a single response, oldest first. The answers are written to the response while they are read from the database.
+     * @param questionId Id of the question whose answers need to be listed
+     * @param authorization Authorization token from request header
+     * @return Response Entity streaming the list of all answers posted for the question
+     * @throws AuthorizationFailedException if the authorization token is invalid, expired or not found
+     * @throws InvalidQuestionException if a question with input questionId doesn't exist
+     */
+    @RequestMapping(path = "/answer/stream/{questionId}", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllAnswersToQuestion(@PathVariable("questionId") String questionId, @RequestHeader("authorization") String authorization) throws AuthorizationFailedException, InvalidQuestionException {
+        String token = AppUtils.getBearerAuthToken(authorization);
+        QuestionEntity question = answerService.checkAnswerListing(token, questionId);
+        StreamingResponseBody body = StreamingJson.array(objectMapper, write -> answerService.forEachAnswer(question,
+                answer -> write.accept(new AnswerDetailsResponse().id(UuidCodec.format(answer.getUuid())).answerContent(answer.getAnswer()).questionContent(answer.getQuestionContent()))));
+        return new ResponseEntity<>(body,HttpStatus.OK);
+    }
 }
@@ -1,31 +1,47 @@
 package com.upgrad.quora.api.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.upgrad.quora.api.model.*;
+import com.upgrad.quora.db.util.UuidCodec;
+import com.upgrad.quora.service.business.IdGenerator;
 import com.upgrad.quora.service.business.QuestionService;
 import com.upgrad.quora.db.entity.QuestionEntity;
+import com.upgrad.quora.db.projection.QuestionSummary;
 import com.upgrad.quora.service.exception.AuthorizationFailedException;
+import com.upgrad.quora.service.exception.BulkRequestTooLargeException;
+import com.upgrad.quora.service.exception.InvalidCursorException;
 import com.upgrad.quora.service.exception.InvalidQuestionException;
 import com.upgrad.quora.service.constants.QuestionStatus;
 import com.upgrad.quora.service.exception.UserNotFoundException;
 import com.upgrad.quora.service.utils.AppUtils;
+import com.upgrad.quora.service.utils.KeysetPage;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.UUID;
 
 @RestController
 @RequestMapping("/question")
 public class QuestionController {
 
+    private static final String NEXT_CURSOR_HEADER = "next-cursor";
+
     @Autowired
     QuestionService questionService;
 
+    @Autowired
+    IdGenerator idGenerator;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
     /**
      * This is used to create a question in the application which will be shown to all  users. It takes input for content of the question & authorization token and creates the question in the database.
      * @param authorization Authorization token from request header
@@ -38,31 +54,68 @@ public class QuestionController {
         String token = AppUtils.getBearerAuthToken(authorization);
         QuestionEntity question = new QuestionEntity();
         question.setContent(request.getContent());
-        question.setDate(LocalDate.now());
-        question.setUuid(UUID.randomUUID().toString());
+        question.setDate(LocalDateTime.now());
+        question.setUuid(idGenerator.nextId());
         question = questionService.createQuestion(token,question);
         QuestionResponse response = new QuestionResponse();
-        response.setId(question.getUuid());
+        response.setId(UuidCodec.format(question.getUuid()));
         response.setStatus(QuestionStatus.QUESTION_CREATED.getStatus());
         return new ResponseEntity<>(response, HttpStatus.CREATED);
     }
 
     /**
-     * This is used to fetch all questions have been posted in the application. It takes authorization token to list all available questions from the application.
+     * This is used to create many questions in a single request, for migrations and integrations. It takes the contents of the questions & authorization token and creates the questions in the database in batches.
      * @param authorization Authorization token from request header
-     * @return List of all questions posted in the application
+     * @param requests Input requests with question content
+     * @return Response Entity with the questionIds, messages and Http Status Code, in the order of the requests
+     * @throws AuthorizationFailedException if the authorization token is invalid, expired or not found
+     * @throws BulkRequestTooLargeException if there are more questions than a single request may create
+     */
+    @RequestMapping(path="/bulk", method= RequestMethod.POST,consumes = MediaType.APPLICATION_JSON_VALUE,produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<QuestionResponse>> createQuestions(@RequestHeader("authorization") String authorization, @RequestBody List<QuestionRequest> requests) throws AuthorizationFailedException, BulkRequestTooLargeException {
+        String token = AppUtils.getBearerAuthToken(authorization);
+        List<QuestionEntity> questions = new ArrayList<>(requests.size());
+        for (QuestionRequest request : requests) {
+            QuestionEntity question = new QuestionEntity();
+            question.setContent(request.getContent());
+            question.setDate(LocalDateTime.now());
+            question.setUuid(idGenerator.nextId());
+            questions.add(question);
+        }
+        List<QuestionResponse> response = new ArrayList<>(questions.size());
+        questionService.createQuestions(token, questions).forEach(question -> response.add(new QuestionResponse().id(UuidCodec.format(question.getUuid())).status(QuestionStatus.QUESTION_CREATED.getStatus())));
+        return new ResponseEntity<>(response, HttpStatus.CREATED);
+    }
+
+    /**
+     * This is used to fetch all questions have been posted in the application, one page at a time and newest first. It takes authorization token to list the available questions from the application.
+     * @param authorization Authorization token from request header
+     * @param cursor continuation token from the next-cursor header of the previous page, absent for the first page
+     * @param limit maximum number of questions of the page
+     * @return Page of questions posted in the application, with a next-cursor header if more questions are available
      * @throws AuthorizationFailedException if the authorization token is invalid, expired or not found.
+     * @throws InvalidCursorException if the cursor is malformed
      */
     @RequestMapping(path="/all",method=RequestMethod.GET,produces=MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<List<QuestionDetailsResponse>> getAllQuestions(@RequestHeader("authorization") String authorization) throws AuthorizationFailedException {
+    public ResponseEntity<List<QuestionDetailsResponse>> getAllQuestions(@RequestHeader("authorization") String authorization, @RequestParam(value = "cursor", required = false) String cursor,
+                                                                         @RequestParam(value = "limit", required = false) Integer limit) throws AuthorizationFailedException, InvalidCursorException {
         String token = AppUtils.getBearerAuthToken(authorization);
-        List<QuestionDetailsResponse> response = this.mapListResponseItems(questionService.getAllQuestions(token));
-        if(response.isEmpty()){
-            return new ResponseEntity<>(response,HttpStatus.NO_CONTENT);
-        }
-        else{
-            return new ResponseEntity<>(response,HttpStatus.OK);
-        }
+        return this.mapPageResponse(questionService.getAllQuestions(token, cursor, limit));
+    }
+
+    /**
+     * This is used to fetch every question posted in the application in a single response, newest first. The questions are written to the response while they are read from the database.
+     * @param authorization Authorization token from request header
+     * @return Response Entity streaming the list of all questions posted in the application
+     * @throws AuthorizationFailedException if the authorization token is invalid, expired or not found.
+     */
+    @RequestMapping(path="/stream",method=RequestMethod.GET,produces=MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllQuestions(@RequestHeader("authorization") String authorization) throws AuthorizationFailedException {
+        String token = AppUtils.getBearerAuthToken(authorization);
+        questionService.checkQuestionListing(token);
+        StreamingResponseBody body = StreamingJson.array(objectMapper, write -> questionService.forEachQuestion(
+                question -> write.accept(new QuestionDetailsResponse().id(UuidCodec.format(question.getUuid())).content(question.getContent()))));
+        return new ResponseEntity<>(body,HttpStatus.OK);
     }
 
     /**
@@ -77,9 +130,7 @@ public class QuestionController {
     @RequestMapping(path="/edit/{questionId}",method=RequestMethod.PUT,consumes = MediaType.APPLICATION_JSON_VALUE,produces = MediaType.APPLICATION_JSON_VALUE)
     public ResponseEntity<QuestionEditResponse> editQuestion(@RequestHeader("authorization") String authorization, @PathVariable("questionId")String questionId, QuestionEditRequest request) throws AuthorizationFailedException, InvalidQuestionException {
         String token = AppUtils.getBearerAuthToken(authorization);
-        QuestionEntity question = questionService.getQuestion(questionId);
-        question.setContent(request.getContent());
-        questionId = questionService.editQuestion(token,question);
+        questionId = questionService.editQuestion(token,questionId,request.getContent());
         QuestionEditResponse response = new QuestionEditResponse();
         response.setId(questionId);
         response.setStatus(QuestionStatus.QUESTION_EDITED.getStatus());
@@ -98,8 +149,7 @@ public class QuestionController {
     @RequestMapping(path="/delete/{questionId}",method=RequestMethod.DELETE,produces=MediaType.APPLICATION_JSON_VALUE)
     public ResponseEntity<QuestionDeleteResponse> deleteQuestion(@RequestHeader("authorization") String authorization, @PathVariable("questionId")String questionId) throws AuthorizationFailedException, InvalidQuestionException {
         String token = AppUtils.getBearerAuthToken(authorization);
-        QuestionEntity question = questionService.getQuestion(questionId);
-        questionId = questionService.deleteQuestion(token,question);
+        questionId = questionService.deleteQuestion(token,questionId);
         QuestionDeleteResponse response = new QuestionDeleteResponse();
         response.setId(questionId);
         response.setStatus(QuestionStatus.QUESTION_DELETED.getStatus());
@@ -107,28 +157,40 @@ public class QuestionController {
     }
 
     /**
-     * This is used to fetch all questions posted by a specific user in the application. It takes authorization token and the user id  of the user and fetches list questions posted by the user.
+     * This is used to fetch all questions posted by a specific user in the application, one page at a time and newest first. It takes authorization token and the user id  of the user and fetches list questions posted by the user.
      * @param authorization Authorization token from request header
      * @param userId Id of the user whose question need to be retrieved
-     * @return Response Entity with Http Status Code and question details (id & content) for all questions posted by user with input user id
+     * @param cursor continuation token from the next-cursor header of the previous page, absent for the first page
+     * @param limit maximum number of questions of the page
+     * @return Response Entity with Http Status Code and question details (id & content) for a page of questions posted by user with input user id, with a next-cursor header if more questions are available
      * @throws AuthorizationFailedException if the authorization token is invalid, expired or not found
      * @throws AuthorizationFailedException if userId is invalid (no such user exists)
+     * @throws InvalidCursorException if the cursor is malformed
      */
     @RequestMapping(path="/all/{userId}",method=RequestMethod.GET,produces=MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<List<QuestionDetailsResponse>> getUserQuestions(@RequestHeader("authorization") String authorization, @PathVariable("userId")String userId) throws AuthorizationFailedException, UserNotFoundException, UserNotFoundException {
+    public ResponseEntity<List<QuestionDetailsResponse>> getUserQuestions(@RequestHeader("authorization") String authorization, @PathVariable("userId")String userId, @RequestParam(value = "cursor", required = false) String cursor,
+                                                                          @RequestParam(value = "limit", required = false) Integer limit) throws AuthorizationFailedException, UserNotFoundException, InvalidCursorException {
         String token = AppUtils.getBearerAuthToken(authorization);
-        List<QuestionDetailsResponse> response = this.mapListResponseItems(questionService.getUserQuestions(token, userId));
+        return this.mapPageResponse(questionService.getUserQuestions(token, userId, cursor, limit));
+    }
+
+    private ResponseEntity<List<QuestionDetailsResponse>> mapPageResponse(KeysetPage<QuestionSummary> page){
+        List<QuestionDetailsResponse> response = this.mapListResponseItems(page.getItems());
+        HttpHeaders headers = new HttpHeaders();
+        if(page.getNextCursor()!=null){
+            headers.add(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
         if(response.isEmpty()){
-            return new ResponseEntity<>(response,HttpStatus.NO_CONTENT);
+            return new ResponseEntity<>(response,headers,HttpStatus.NO_CONTENT);
         }
         else{
-            return new ResponseEntity<>(response,HttpStatus.OK);
+            return new ResponseEntity<>(response,headers,HttpStatus.OK);
         }
     }
 
-    private List<QuestionDetailsResponse> mapListResponseItems(List<QuestionEntity> questions){
+    private List<QuestionDetailsResponse> mapListResponseItems(List<QuestionSummary> questions){
         List<QuestionDetailsResponse> response = new ArrayList<>();
-        questions.forEach (question -> response.add(new QuestionDetailsResponse().id(question.getUuid()).content(question.getContent())));
+        questions.forEach (question -> response.add(new QuestionDetailsResponse().id(UuidCodec.format(question.getUuid())).content(question.getContent())));
         return response;
     }
 
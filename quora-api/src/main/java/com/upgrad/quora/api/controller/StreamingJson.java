@@ -0,0 +1,43 @@
+package com.upgrad.quora.api.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Writes a JSON array to the response while its elements are being produced, so that a listing never has to be held in memory.
+ */
+final class StreamingJson {
+
+    private StreamingJson() {
+    }
+
+    /**
+     * @param objectMapper mapper used to serialize the elements
+     * @param producer called once with a writer, passes every element of the array to the writer in order
+     * @return response body writing the array
+     */
+    static StreamingResponseBody array(ObjectMapper objectMapper, Consumer<Consumer<Object>> producer) {
+        return outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.writeStartArray();
+                try {
+                    producer.accept(element -> {
+                        try {
+                            generator.writeObject(element);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+                generator.writeEndArray();
+            }
+        };
+    }
+}
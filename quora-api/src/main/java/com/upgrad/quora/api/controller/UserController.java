@@ -4,12 +4,15 @@ import com.upgrad.quora.api.model.SigninResponse;
 import com.upgrad.quora.api.model.SignoutResponse;
 import com.upgrad.quora.api.model.SignupUserRequest;
 import com.upgrad.quora.api.model.SignupUserResponse;
-import com.upgrad.quora.db.entity.UserAuthEntity;
 import com.upgrad.quora.db.entity.UserEntity;
+import com.upgrad.quora.db.util.UuidCodec;
+import com.upgrad.quora.service.business.IdGenerator;
 import com.upgrad.quora.service.business.UserService;
 import com.upgrad.quora.service.constants.UserRole;
 import com.upgrad.quora.service.constants.UserStatus;
 import com.upgrad.quora.service.exception.AuthenticationFailedException;
+import com.upgrad.quora.service.exception.ServiceBusyException;
+import com.upgrad.quora.service.exception.SignInRestrictedException;
 import com.upgrad.quora.service.exception.SignOutRestrictedException;
 import com.upgrad.quora.service.exception.SignUpRestrictedException;
 import com.upgrad.quora.service.utils.AppUtils;
@@ -24,8 +27,14 @@ import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import javax.servlet.http.HttpServletRequest;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
 
 @RestController
 @RequestMapping("/user")
@@ -33,47 +42,46 @@ public class UserController {
     @Autowired
     UserService userService;
 
+    @Autowired
+    IdGenerator idGenerator;
+
     /**
      * This is used to register a user in the application. It takes profile information as input and registers the user in the application.
+     * The response is completed asynchronously, once the password has been hashed and the user stored.
      * @param request User/Profile Information
      * @return Response Entity with HttpStatus code, id of registered user and message
      * @throws SignUpRestrictedException on duplicate username/email
+     * @throws ServiceBusyException if the password hashing queue is full
      */
     @RequestMapping(path = "/signup", method = RequestMethod.POST, consumes = MediaType.APPLICATION_JSON_UTF8_VALUE, produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
-    public ResponseEntity<SignupUserResponse> registerUser(SignupUserRequest request) throws SignUpRestrictedException {
-        UserEntity user = new UserEntity();
-        user.setUuid(UUID.randomUUID().toString());
-        user.setFirstName(request.getFirstName());
-        user.setLastName(request.getLastName());
-        user.setUserName(request.getUserName());
-        user.setEmail(request.getEmailAddress());
-        user.setPassword(request.getPassword());
-        user.setSalt(StringUtils.remove(UUID.randomUUID().toString(),'-'));
-        user.setRole(UserRole.REGULAR.getRole());
-        user.setDob(request.getDob());
-        user.setAboutMe(request.getAboutMe());
-        user.setCountry(request.getCountry());
-        user.setContactNumber(request.getContactNumber());
-        user = userService.createUser(user);
-        SignupUserResponse response = new SignupUserResponse().id(user.getUuid()).status(UserStatus.REGISTERED_OK.getStatus());
-        return new ResponseEntity<>(response, HttpStatus.CREATED);
+    public DeferredResult<ResponseEntity<SignupUserResponse>> registerUser(SignupUserRequest request) throws SignUpRestrictedException, ServiceBusyException {
+        UserEntity user = toUserEntity(request, idGenerator);
+        return deferredResult(userService.createUser(user), createdUser -> {
+            SignupUserResponse response = new SignupUserResponse().id(UuidCodec.format(createdUser.getUuid())).status(UserStatus.REGISTERED_OK.getStatus());
+            return new ResponseEntity<>(response, HttpStatus.CREATED);
+        });
     }
 
     /**
      * This is used to sing in a user in the application. It takes the login information of the user and logs him in.
+     * The response is completed asynchronously, once the password has been checked.
      * @param authorization Authorization token from request header
+     * @param httpRequest current request, for the client address
      * @return Response Entity with HttpStatus code, id of user who signed in, message and authorization token (for further communication)
      * @throws AuthenticationFailedException on Invalid username/password
+     * @throws SignInRestrictedException if there were too many failed attempts for the username or from the client address
+     * @throws ServiceBusyException if the password hashing queue is full
      */
     @RequestMapping(path = "/signin", method = RequestMethod.POST, produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
-    public ResponseEntity<SigninResponse> loginUser(@RequestHeader("authorization") String authorization) throws AuthenticationFailedException {
+    public DeferredResult<ResponseEntity<SigninResponse>> loginUser(@RequestHeader("authorization") String authorization, HttpServletRequest httpRequest) throws AuthenticationFailedException, SignInRestrictedException, ServiceBusyException {
         String token = AppUtils.getBasicAuthToken(authorization);
         StringTokenizer tokens =  new StringTokenizer(new String (Base64.getDecoder().decode(token)));
-        UserAuthEntity userAuth = userService.authenticateUser(tokens.nextToken(),tokens.nextToken());
-        SigninResponse response = new SigninResponse().id(userAuth.getUuid()).message(UserStatus.SIGN_IN_OK.getStatus());
-        MultiValueMap<String,String> headers = new HttpHeaders();
-        headers.add("access_token",userAuth.getAccessToken());
-        return new ResponseEntity<SigninResponse>(response, headers, HttpStatus.OK);
+        return deferredResult(userService.authenticateUser(tokens.nextToken(),tokens.nextToken(),httpRequest.getRemoteAddr()), userAuth -> {
+            SigninResponse response = new SigninResponse().id(userAuth.getUuid()).message(UserStatus.SIGN_IN_OK.getStatus());
+            MultiValueMap<String,String> headers = new HttpHeaders();
+            headers.add("access_token",userAuth.getAccessToken());
+            return new ResponseEntity<SigninResponse>(response, headers, HttpStatus.OK);
+        });
     }
 
     /**
@@ -86,7 +94,44 @@ public class UserController {
     public ResponseEntity<SignoutResponse> logoutUser(@RequestHeader("authorization") String authorization) throws SignOutRestrictedException {
         String token = AppUtils.getBearerAuthToken(authorization);
         UserEntity user = userService.invalidateAuthorization(token);
-        SignoutResponse response = new SignoutResponse().id(user.getUuid()).message(UserStatus.SIGN_OUT_OK.getStatus());
+        SignoutResponse response = new SignoutResponse().id(UuidCodec.format(user.getUuid())).message(UserStatus.SIGN_OUT_OK.getStatus());
         return new ResponseEntity<>(response, HttpStatus.OK);
     }
+
+    /**
+     * Builds a new regular user from a signup request, the password is still in plain text.
+     * The salt keeps coming from the secure random generator, unlike the id it must not be predictable.
+     */
+    static UserEntity toUserEntity(SignupUserRequest request, IdGenerator idGenerator) {
+        UserEntity user = new UserEntity();
+        user.setUuid(idGenerator.nextId());
+        user.setFirstName(request.getFirstName());
+        user.setLastName(request.getLastName());
+        user.setUserName(request.getUserName());
+        user.setEmail(request.getEmailAddress());
+        user.setPassword(request.getPassword());
+        user.setSalt(StringUtils.remove(UUID.randomUUID().toString(),'-'));
+        user.setRole(UserRole.REGULAR.getRole());
+        user.setDob(request.getDob());
+        user.setAboutMe(request.getAboutMe());
+        user.setCountry(request.getCountry());
+        user.setContactNumber(request.getContactNumber());
+        return user;
+    }
+
+    /**
+     * Completes a deferred response from a service future. Service exceptions are passed on unwrapped, so that they reach the RestExceptionHandler.
+     */
+    private static <T, R> DeferredResult<R> deferredResult(CompletableFuture<T> future, Function<T, R> responseMapper) {
+        DeferredResult<R> result = new DeferredResult<>();
+        future.whenComplete((value, error) -> {
+            if (error != null) {
+                result.setErrorResult(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+            }
+            else {
+                result.setResult(responseMapper.apply(value));
+            }
+        });
+        return result;
+    }
 }
@@ -0,0 +1,126 @@
+package com.upgrad.quora.api.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.upgrad.quora.api.model.SignupUserRequest;
+import com.upgrad.quora.db.entity.UserEntity;
+import com.upgrad.quora.service.business.IdGenerator;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads the users of a bulk import file one line at a time.
+ * A file is either newline delimited JSON with one signup request per line,
+ * or CSV with a header line naming the signup request fields (first_name, last_name, user_name, email_address, password, ...).
+ * Blank lines are skipped. A line that cannot be read is returned as null, so that it can be reported without stopping the import.
+ */
+class UserImportReader implements Iterator<UserEntity> {
+
+    private final BufferedReader reader;
+    private final ObjectMapper objectMapper;
+    private final IdGenerator idGenerator;
+    private final boolean csv;
+    private List<String> header;
+    private String nextLine;
+
+    UserImportReader(BufferedReader reader, ObjectMapper objectMapper, IdGenerator idGenerator, boolean csv) {
+        this.reader = reader;
+        this.objectMapper = objectMapper;
+        this.idGenerator = idGenerator;
+        this.csv = csv;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (nextLine == null) {
+            nextLine = readNonBlankLine();
+            if (csv && header == null && nextLine != null) {
+                header = splitCsvLine(nextLine);
+                nextLine = readNonBlankLine();
+            }
+        }
+        return nextLine != null;
+    }
+
+    @Override
+    public UserEntity next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        String line = nextLine;
+        nextLine = null;
+        try {
+            SignupUserRequest request = csv ? objectMapper.convertValue(toFields(splitCsvLine(line)), SignupUserRequest.class)
+                    : objectMapper.readValue(line, SignupUserRequest.class);
+            return UserController.toUserEntity(request, idGenerator);
+        } catch (IOException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private String readNonBlankLine() {
+        try {
+            String line;
+            do {
+                line = reader.readLine();
+            } while (line != null && line.trim().isEmpty());
+            return line;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Map<String, String> toFields(List<String> values) {
+        if (values.size() != header.size()) {
+            throw new IllegalArgumentException("Expected " + header.size() + " values but found " + values.size());
+        }
+        Map<String, String> fields = new HashMap<>();
+        for (int i = 0; i < values.size(); i++) {
+            fields.put(header.get(i).trim(), values.get(i).isEmpty() ? null : values.get(i));
+        }
+        return fields;
+    }
+
+    /**
+     * Splits a CSV line on commas outside of double quotes, a double quote inside a quoted value is escaped by doubling it
+     */
+    private static List<String> splitCsvLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                }
+                else if (c == '"') {
+                    quoted = false;
+                }
+                else {
+                    value.append(c);
+                }
+            }
+            else if (c == '"') {
+                quoted = true;
+            }
+            else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            }
+            else {
+                value.append(c);
+            }
+        }
+        values.add(value.toString());
+        return values;
+    }
+}
@@ -3,6 +3,9 @@ package com.upgrad.quora.api.exception;
 import com.upgrad.quora.api.model.ErrorResponse;
 import com.upgrad.quora.service.exception.*;
 import com.upgrad.quora.service.common.UnexpectedException;
+import com.upgrad.quora.service.constants.ErrorConditions;
+import com.upgrad.quora.service.utils.CoalescingTimeoutException;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -23,6 +26,11 @@ public class RestExceptionHandler {
         return new ResponseEntity<>(new ErrorResponse().code(exception.getCode()).message(exception.getErrorMessage()), HttpStatus.UNAUTHORIZED);
     }
 
+    @ExceptionHandler(SignInRestrictedException.class)
+    public ResponseEntity<ErrorResponse> handleSignInRestrictedException(SignInRestrictedException exception, WebRequest request){
+        return new ResponseEntity<>(new ErrorResponse().code(exception.getCode()).message(exception.getErrorMessage()), HttpStatus.TOO_MANY_REQUESTS);
+    }
+
     @ExceptionHandler(SignOutRestrictedException.class)
     public ResponseEntity<ErrorResponse> handleInvalidQuestionException(SignOutRestrictedException exception, WebRequest request){
         return new ResponseEntity<>(new ErrorResponse().code(exception.getCode()).message(exception.getErrorMessage()), HttpStatus.UNAUTHORIZED);
@@ -49,6 +57,31 @@ public class RestExceptionHandler {
         return new ResponseEntity<>(new ErrorResponse().code(exception.getCode()).message(exception.getErrorMessage()), HttpStatus.NOT_FOUND);
     }
 
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<ErrorResponse> handleInvalidCursorException(InvalidCursorException exception, WebRequest request){
+        return new ResponseEntity<>(new ErrorResponse().code(exception.getCode()).message(exception.getErrorMessage()), HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(BulkRequestTooLargeException.class)
+    public ResponseEntity<ErrorResponse> handleBulkRequestTooLargeException(BulkRequestTooLargeException exception, WebRequest request){
+        return new ResponseEntity<>(new ErrorResponse().code(exception.getCode()).message(exception.getErrorMessage()), HttpStatus.PAYLOAD_TOO_LARGE);
+    }
+
+    @ExceptionHandler(ServiceBusyException.class)
+    public ResponseEntity<ErrorResponse> handleServiceBusyException(ServiceBusyException exception, WebRequest request){
+        return new ResponseEntity<>(new ErrorResponse().code(exception.getCode()).message(exception.getErrorMessage()), HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    @ExceptionHandler(TaskRejectedException.class)
+    public ResponseEntity<ErrorResponse> handleTaskRejectedException(TaskRejectedException exception, WebRequest request){
+        return new ResponseEntity<>(new ErrorResponse().code(ErrorConditions.SERVICE_BUSY.getCode()).message(ErrorConditions.SERVICE_BUSY.getMessage()), HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    @ExceptionHandler(CoalescingTimeoutException.class)
+    public ResponseEntity<ErrorResponse> handleCoalescingTimeoutException(CoalescingTimeoutException exception, WebRequest request){
+        return new ResponseEntity<>(new ErrorResponse().code(ErrorConditions.SERVICE_BUSY.getCode()).message(ErrorConditions.SERVICE_BUSY.getMessage()), HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
     @ExceptionHandler(UnexpectedException.class)
     public ResponseEntity<ErrorResponse> handleUnexpectedException(UnexpectedException exception, WebRequest request){
         return new ResponseEntity<>(new ErrorResponse().code(exception.getErrorCode().getCode()).message(exception.getMessage()), HttpStatus.INTERNAL_SERVER_ERROR);
@@ -0,0 +1,70 @@
+package com.upgrad.quora.api;
+
+import com.upgrad.quora.db.entity.AnswerEntity;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Loads the 200 seeded answers of one question as entities, so that an owner or question association turned eager again,
+ * or losing its batch loading, fails the build instead of issuing one select per answer.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Transactional
+public class LazyAssociationTest {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @Before
+    public void setUp() {
+        //owners served from the second-level cache would hide the statements being counted
+        entityManagerFactory.getCache().evictAll();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+    }
+
+    //This test case passes when loading answers leaves their owners and questions unloaded, and touching all of them loads them in batches.
+    @Test
+    public void ownersAreLoadedLazilyInBatches() {
+        List<AnswerEntity> answers = entityManager.createQuery("SELECT a FROM AnswerEntity a WHERE a.question.id = 1025 AND a.id BETWEEN 2001 AND 2200", AnswerEntity.class)
+                .getResultList();
+        assertEquals(200, answers.size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+        for (AnswerEntity answer : answers) {
+            assertFalse(Hibernate.isInitialized(answer.getUser()));
+            assertFalse(Hibernate.isInitialized(answer.getQuestion()));
+        }
+
+        //4 distinct owners and a single question, each fetched by one batch select
+        answers.forEach(answer -> {
+            answer.getUser().getUserName();
+            answer.getQuestion().getContent();
+        });
+        long statements = statistics.getPrepareStatementCount();
+        assertTrue("Touching the owners of 200 answers took " + statements + " statements, budget 3", statements <= 3);
+    }
+}
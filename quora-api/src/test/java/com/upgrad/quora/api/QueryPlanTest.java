@@ -0,0 +1,142 @@
+package com.upgrad.quora.api;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
+import javax.persistence.metamodel.EntityType;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs EXPLAIN for the SQL of every named query against the seeded database, so that a query left without a usable index
+ * fails the build. Sequential scans are switched off for the check: the test tables are small enough for the planner to
+ * prefer a sequential scan anyway, with them switched off it still picks one only when no index can serve the query.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class QueryPlanTest {
+
+    //Sample parameter values as SQL expressions, in the order the parameters appear in the generated SQL
+    private static final Map<String, List<String>> PARAMETERS = new HashMap<>();
+
+    //Queries which read every row by design
+    private static final List<String> FULL_READS = Collections.singletonList("Users.fetchUserNamesAndEmails");
+
+    static {
+        PARAMETERS.put("Users.getById", Arrays.asList("'00000000-0000-0000-0000-000000001025'"));
+        PARAMETERS.put("Users.getByUserName", Arrays.asList("'database_username'"));
+        PARAMETERS.put("Users.getByEmail", Arrays.asList("'database_email'"));
+        PARAMETERS.put("UserAuths.getByAccessToken", Arrays.asList("sha256('database_accesstoken'::bytea)"));
+        PARAMETERS.put("UserAuths.fetchSignedOutSince", Arrays.asList("'2018-09-17 00:00:00'"));
+        PARAMETERS.put("UserAuths.fetchUnexpiredByUser", Arrays.asList("1026", "'2018-09-17 00:00:00'"));
+        PARAMETERS.put("RevokedTokens.fetchUnexpired", Arrays.asList("'2018-09-17 00:00:00'"));
+        PARAMETERS.put("Questions.getById", Arrays.asList("'00000000-0000-0000-0001-000000001024'"));
+        PARAMETERS.put("Questions.fetchByUserId", Arrays.asList("1027"));
+        PARAMETERS.put("Questions.fetchByUserIdAfter", Arrays.asList("1027", "'2018-09-18 02:00:00'", "'2018-09-18 02:00:00'", "2100"));
+        PARAMETERS.put("Questions.fetchAll", Collections.emptyList());
+        PARAMETERS.put("Questions.fetchAllAfter", Arrays.asList("'2018-09-18 02:00:00'", "'2018-09-18 02:00:00'", "2100"));
+        PARAMETERS.put("Answers.getById", Arrays.asList("'00000000-0000-0000-0002-000000001024'"));
+        PARAMETERS.put("Answers.getByQuestion", Arrays.asList("1025"));
+    }
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private DataSource dataSource;
+
+    //This test case passes when the plan of every named query reads its table through an index instead of a sequential scan.
+    @Test
+    public void everyNamedQueryUsesAnIndex() throws Exception {
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        List<String> failures = new ArrayList<>();
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SET LOCAL enable_seqscan = off");
+                for (NamedQuery namedQuery : namedQueries()) {
+                    if (FULL_READS.contains(namedQuery.name())) {
+                        continue;
+                    }
+                    List<String> parameters = PARAMETERS.get(namedQuery.name());
+                    if (parameters == null) {
+                        failures.add(namedQuery.name() + " has no sample parameters in " + QueryPlanTest.class.getSimpleName());
+                        continue;
+                    }
+                    String sql = sessionFactory.getQueryPlanCache().getHQLQueryPlan(namedQuery.query(), false, Collections.emptyMap()).getSqlStrings()[0];
+                    String plan = explain(statement, sql, parameters);
+                    if (plan.contains("Seq Scan")) {
+                        failures.add(namedQuery.name() + " falls back to a sequential scan:\n" + plan);
+                    }
+                }
+            } finally {
+                connection.rollback();
+            }
+        }
+        assertTrue(String.join("\n", failures), failures.isEmpty());
+    }
+
+    private List<NamedQuery> namedQueries() {
+        List<NamedQuery> namedQueries = new ArrayList<>();
+        for (EntityType<?> entity : entityManagerFactory.getMetamodel().getEntities()) {
+            NamedQueries annotation = entity.getJavaType().getAnnotation(NamedQueries.class);
+            if (annotation != null) {
+                namedQueries.addAll(Arrays.asList(annotation.value()));
+            }
+            NamedQuery single = entity.getJavaType().getAnnotation(NamedQuery.class);
+            if (single != null) {
+                namedQueries.add(single);
+            }
+        }
+        return namedQueries;
+    }
+
+    private static String explain(Statement statement, String sql, List<String> parameters) throws SQLException {
+        statement.execute("PREPARE plan_check AS " + numberParameters(sql));
+        try {
+            String execute = parameters.isEmpty() ? "EXECUTE plan_check" : "EXECUTE plan_check(" + String.join(", ", parameters) + ")";
+            StringBuilder plan = new StringBuilder();
+            try (ResultSet rows = statement.executeQuery("EXPLAIN " + execute)) {
+                while (rows.next()) {
+                    plan.append(rows.getString(1)).append('\n');
+                }
+            }
+            return plan.toString();
+        } finally {
+            statement.execute("DEALLOCATE plan_check");
+        }
+    }
+
+    //PREPARE takes numbered parameters instead of the JDBC placeholders of the generated SQL
+    private static String numberParameters(String sql) {
+        StringBuilder numbered = new StringBuilder(sql.length() + 16);
+        int parameter = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (c == '?') {
+                numbered.append('$').append(++parameter);
+            } else {
+                numbered.append(c);
+            }
+        }
+        return numbered.toString();
+    }
+}
@@ -26,7 +26,7 @@ public class AdminControllerTest {
     //This test case passes when you try to delete the user but the JWT token entered does not exist in the database.
     @Test
     public void deleteWithNonExistingAccessToken() throws Exception {
-        mvc.perform(MockMvcRequestBuilders.delete("/admin/user/database_uuid4").header("authorization", "non_existing_access_token"))
+        mvc.perform(MockMvcRequestBuilders.delete("/admin/user/00000000-0000-0000-0000-000000001029").header("authorization", "non_existing_access_token"))
                 .andExpect(status().isForbidden())
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-001"));
     }
@@ -34,7 +34,7 @@ public class AdminControllerTest {
     //This test case passes when you try to delete the user but the role of the user corresponding to the JWT token entered is nonadmin.
     @Test
     public void deleteWithnonadminAsRole() throws Exception {
-        mvc.perform(MockMvcRequestBuilders.delete("/admin/user/database_uuid4").header("authorization", "database_accesstoken1"))
+        mvc.perform(MockMvcRequestBuilders.delete("/admin/user/00000000-0000-0000-0000-000000001029").header("authorization", "database_accesstoken1"))
                 .andExpect(status().isForbidden())
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-003"));
     }
@@ -48,5 +48,28 @@ public class AdminControllerTest {
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("USR-001"));
     }
 
+    //This test case passes when you try to import users but the role of the user corresponding to the JWT token entered is nonadmin.
+    @Test
+    public void importWithnonadminAsRole() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.post("/admin/users/import").header("authorization", "database_accesstoken1").contentType("application/x-ndjson")
+                .content("{\"first_name\":\"a\",\"last_name\":\"a\",\"user_name\":\"imported_username\",\"email_address\":\"imported_email\",\"password\":\"a\"}\n"))
+                .andExpect(status().isForbidden())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-003"));
+    }
+
+    //This test case passes when you import a file in which one user reuses a taken username and another one is malformed.
+    @Test
+    public void importReportsEveryRow() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.post("/admin/users/import").header("authorization", "database_accesstoken").contentType("text/csv")
+                .content("first_name,last_name,user_name,email_address,password\n"
+                        + "a,a,database_username,other_imported_email,a\n"
+                        + "a,a,missing_password\n"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("accepted").value(0))
+                .andExpect(MockMvcResultMatchers.jsonPath("rejected").value(2))
+                .andExpect(MockMvcResultMatchers.jsonPath("rows[0].code").value("SGR-001"))
+                .andExpect(MockMvcResultMatchers.jsonPath("rows[1].code").value("IMP-001"));
+    }
+
 
 }
@@ -1,6 +1,7 @@
 package com.upgrad.quora.api.controller;
 
-
+import com.jayway.jsonpath.JsonPath;
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -9,9 +10,18 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @RunWith(SpringRunner.class)
@@ -23,11 +33,21 @@ public class AnswerControllerTest {
     @Autowired
     private MockMvc mvc;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private StatementBudget budget;
+
+    @Before
+    public void setUpStatementBudget() {
+        budget = new StatementBudget(entityManagerFactory);
+    }
+
 
     //This test case passes when you try to create the answer but the JWT token entered does not exist in the database.
     @Test
     public void createAnswerWithNonExistingAccessToken() throws Exception {
-        mvc.perform(MockMvcRequestBuilders.post("/question/database_question_uuid/answer/create?answer=my_answer").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "non_existing_access_token"))
+        mvc.perform(MockMvcRequestBuilders.post("/question/00000000-0000-0000-0001-000000001024/answer/create?answer=my_answer").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "non_existing_access_token"))
                 .andExpect(status().isForbidden())
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-001"));
     }
@@ -35,7 +55,7 @@ public class AnswerControllerTest {
     //This test case passes when you try to create the answer but the user corresponding to the JWT token entered is signed out of the application.
     @Test
     public void createAnswerWithSignedOutUser() throws Exception {
-        mvc.perform(MockMvcRequestBuilders.post("/question/database_question_uuid/answer/create?answer=my_answer").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken3"))
+        mvc.perform(MockMvcRequestBuilders.post("/question/00000000-0000-0000-0001-000000001024/answer/create?answer=my_answer").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken3"))
                 .andExpect(status().isForbidden())
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-002"));
     }
@@ -48,10 +68,18 @@ public class AnswerControllerTest {
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("QUES-001"));
     }
 
+    //This test case passes when you try to create many answers at once for the question which does not exist in the database.
+    @Test
+    public void createAnswersForNonExistingQuestion() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.post("/question/non_existing_question_uuid/answer/bulk").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).content("[{\"answer\":\"my_answer\"},{\"answer\":\"my_other_answer\"}]").header("authorization", "database_accesstoken4"))
+                .andExpect(status().isNotFound())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("QUES-001"));
+    }
+
     //This test case passes when you try to edit the answer but the JWT token entered does not exist in the database.
     @Test
     public void editAnswerWithNonExistingAccessToken() throws Exception {
-        mvc.perform(MockMvcRequestBuilders.put("/answer/edit/database_answer_uuid?content=edited_answer").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "non_existing_access_token"))
+        mvc.perform(MockMvcRequestBuilders.put("/answer/edit/00000000-0000-0000-0002-000000001024?content=edited_answer").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "non_existing_access_token"))
                 .andExpect(status().isForbidden())
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-001"));
     }
@@ -59,7 +87,7 @@ public class AnswerControllerTest {
     //This test case passes when you try to edit the answer and the JWT token entered exists in the database but the user corresponding to that JWT token is signed out.
     @Test
     public void editAnswerWithSignedOutUser() throws Exception {
-        mvc.perform(MockMvcRequestBuilders.put("/answer/edit/database_answer_uuid?content=edited_answer").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken3"))
+        mvc.perform(MockMvcRequestBuilders.put("/answer/edit/00000000-0000-0000-0002-000000001024?content=edited_answer").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken3"))
                 .andExpect(status().isForbidden())
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-002"));
     }
@@ -75,7 +103,7 @@ public class AnswerControllerTest {
     //This test case passes when you try to edit the answer and the JWT token entered exists in the database and the user corresponding to that JWT token is signed in but the corresponding user is not the owner of the answer.
     @Test
     public void editAnswerWithoutOwnership() throws Exception {
-        mvc.perform(MockMvcRequestBuilders.put("/answer/edit/database_answer_uuid?content=edited_answer").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken"))
+        mvc.perform(MockMvcRequestBuilders.put("/answer/edit/00000000-0000-0000-0002-000000001024?content=edited_answer").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken"))
                 .andExpect(status().isForbidden())
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-003"));
     }
@@ -83,7 +111,7 @@ public class AnswerControllerTest {
     //This test case passes when you try to delete the answer but the JWT token entered does not exist in the database.
     @Test
     public void deleteAnswerWithNonExistingAccessToken() throws Exception {
-        mvc.perform(MockMvcRequestBuilders.delete("/answer/delete/database_answer_uuid").header("authorization", "non_existing_access_token"))
+        mvc.perform(MockMvcRequestBuilders.delete("/answer/delete/00000000-0000-0000-0002-000000001024").header("authorization", "non_existing_access_token"))
                 .andExpect(status().isForbidden())
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-001"));
     }
@@ -91,7 +119,7 @@ public class AnswerControllerTest {
     //This test case passes when you try to delete the answer and the JWT token entered exists in the database but the user corresponding to that JWT token is signed out.
     @Test
     public void deleteAnswerWithSignedOutUser() throws Exception {
-        mvc.perform(MockMvcRequestBuilders.delete("/answer/delete/database_answer_uuid").header("authorization", "database_accesstoken3"))
+        mvc.perform(MockMvcRequestBuilders.delete("/answer/delete/00000000-0000-0000-0002-000000001024").header("authorization", "database_accesstoken3"))
                 .andExpect(status().isForbidden())
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-002"));
     }
@@ -107,7 +135,7 @@ public class AnswerControllerTest {
     //This test case passes when you try to delete the answer and the JWT token entered exists in the database and the user corresponding to that JWT token is signed in but the corresponding user is not the owner of the answer or he is not the admin.
     @Test
     public void deleteAnswerWithoutOwnership() throws Exception {
-        mvc.perform(MockMvcRequestBuilders.delete("/answer/delete/database_answer_uuid").header("authorization", "database_accesstoken2"))
+        mvc.perform(MockMvcRequestBuilders.delete("/answer/delete/00000000-0000-0000-0002-000000001024").header("authorization", "database_accesstoken2"))
                 .andExpect(status().isForbidden())
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-003"));
     }
@@ -115,7 +143,7 @@ public class AnswerControllerTest {
     //This test case passes when you try to get all the answers posted for a specific question but the JWT token entered does not exist in the database.
     @Test
     public void getAllAnswersToQuestionWithNonExistingAccessToken() throws Exception {
-        mvc.perform(MockMvcRequestBuilders.get("/answer/all/database_question_uuid").header("authorization", "non_existing_access_token"))
+        mvc.perform(MockMvcRequestBuilders.get("/answer/all/00000000-0000-0000-0001-000000001024").header("authorization", "non_existing_access_token"))
                 .andExpect(status().isForbidden())
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-001"));
     }
@@ -123,7 +151,7 @@ public class AnswerControllerTest {
     //This test case passes when you try to get all the answers posted for a specific question and the JWT token entered exists in the database but the user corresponding to that JWT token is signed out.
     @Test
     public void getAllAnswersToQuestionWithSignedOutUser() throws Exception {
-        mvc.perform(MockMvcRequestBuilders.get("/answer/all/database_question_uuid").header("authorization", "database_accesstoken3"))
+        mvc.perform(MockMvcRequestBuilders.get("/answer/all/00000000-0000-0000-0001-000000001024").header("authorization", "database_accesstoken3"))
                 .andExpect(status().isForbidden())
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-002"));
     }
@@ -136,5 +164,156 @@ public class AnswerControllerTest {
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("QUES-001"));
     }
 
+    //This test case passes when you try to stream all the answers to a question which does not exist in the database.
+    @Test
+    public void streamAllAnswersToNonExistingQuestion() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/answer/stream/non_existing_question_uuid").header("authorization", "database_accesstoken"))
+                .andExpect(status().isNotFound())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("QUES-001"));
+    }
+
+    //This test case passes when listing the 200 seeded answers of a question stays within its statement budget, i.e. the answers are not loaded one by one.
+    @Test
+    public void getAllAnswersToQuestionWithinStatementBudget() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/answer/all/00000000-0000-0000-0001-000000001025").header("authorization", "database_accesstoken4").with(budget.track()))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(200))
+                .andExpect(budget.atMost(3, 3));
+    }
+
+    //This test case passes when streaming the answers of a question writes one JSON array holding every seeded answer, oldest first.
+    @Test
+    public void streamAllAnswersToQuestion() throws Exception {
+        MvcResult started = mvc.perform(MockMvcRequestBuilders.get("/answer/stream/00000000-0000-0000-0001-000000001025").header("authorization", "database_accesstoken4"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MvcResult result = mvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andReturn();
+        List<String> ids = JsonPath.read(result.getResponse().getContentAsString(), "$[*].id");
+        int previous = -1;
+        for (int n = 2001; n <= 2200; n++) {
+            int index = ids.indexOf(String.format("00000000-0000-0000-0002-%012d", n));
+            assertTrue("Answer " + n + " is missing or out of order", index > previous);
+            previous = index;
+        }
+    }
+
+    //This test case passes when many answers are created at once and the ids in the response belong to the answers of the requests in the same order.
+    @Test
+    public void createAnswers() throws Exception {
+        String questionId = createQuestion();
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.post("/question/" + questionId + "/answer/bulk").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).content(bulkContent(3)).header("authorization", "database_accesstoken4"))
+                .andExpect(status().isCreated())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(3))
+                .andReturn();
+        List<String> ids = JsonPath.read(result.getResponse().getContentAsString(), "$[*].id");
+        String listing = mvc.perform(MockMvcRequestBuilders.get("/answer/all/" + questionId).header("authorization", "database_accesstoken4"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        for (int i = 0; i < ids.size(); i++) {
+            List<String> answer = JsonPath.read(listing, "$[?(@.id == '" + ids.get(i) + "')].answerContent");
+            assertEquals("Answer " + ids.get(i) + " does not belong to request " + i, "bulk_answer_" + i, answer.get(0));
+        }
+    }
+
+    //This test case passes when a request with more answers than a single request may create is refused.
+    @Test
+    public void createTooManyAnswers() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.post("/question/00000000-0000-0000-0001-000000001024/answer/bulk").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).content(bulkContent(1001)).header("authorization", "database_accesstoken4"))
+                .andExpect(status().isPayloadTooLarge())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("BULK-001"));
+    }
+
+    //This test case passes when many answers are created within their statement budget, i.e. the inserts are sent in batches of 50 instead of one by one.
+    @Test
+    public void createAnswersWithinStatementBudget() throws Exception {
+        String questionId = createQuestion();
+        mvc.perform(MockMvcRequestBuilders.post("/question/" + questionId + "/answer/bulk").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).content(bulkContent(120)).header("authorization", "database_accesstoken4").with(budget.track()))
+                .andExpect(status().isCreated())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(120))
+                .andExpect(budget.atMost(9, 3));
+    }
+
+    //This test case passes when the owner edits an answer and the answer listing of its question shows the new content right away.
+    @Test
+    public void editAnswerAsOwner() throws Exception {
+        String questionId = createQuestion();
+        String answerId = createAnswer(questionId);
+        assertListing(questionId, answerId, "answer_to_change");
+        mvc.perform(MockMvcRequestBuilders.put("/answer/edit/" + answerId + "?content=edited_answer").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken4"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("id").value(answerId));
+        assertListing(questionId, answerId, "edited_answer");
+    }
+
+    //This test case passes when the owner deletes an answer and the answer listing of its question no longer shows it.
+    @Test
+    public void deleteAnswerAsOwner() throws Exception {
+        String questionId = createQuestion();
+        String answerId = createAnswer(questionId);
+        assertListing(questionId, answerId, "answer_to_change");
+        mvc.perform(MockMvcRequestBuilders.delete("/answer/delete/" + answerId).header("authorization", "database_accesstoken4"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("id").value(answerId));
+        mvc.perform(MockMvcRequestBuilders.get("/answer/all/" + questionId).header("authorization", "database_accesstoken4"))
+                .andExpect(status().isNoContent());
+    }
+
+    //This test case passes when an admin deletes the answer of another user and the answer listing of its question no longer shows it.
+    @Test
+    public void deleteAnswerAsAdmin() throws Exception {
+        String questionId = createQuestion();
+        String answerId = createAnswer(questionId);
+        assertListing(questionId, answerId, "answer_to_change");
+        mvc.perform(MockMvcRequestBuilders.delete("/answer/delete/" + answerId).header("authorization", "database_accesstoken5"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("id").value(answerId));
+        mvc.perform(MockMvcRequestBuilders.get("/answer/all/" + questionId).header("authorization", "database_accesstoken4"))
+                .andExpect(status().isNoContent());
+    }
 
+    //This test case passes when an edit of a well formed answer id that does not exist is refused and the answer listing stays as it was.
+    @Test
+    public void editUnknownAnswer() throws Exception {
+        String questionId = createQuestion();
+        String answerId = createAnswer(questionId);
+        assertListing(questionId, answerId, "answer_to_change");
+        mvc.perform(MockMvcRequestBuilders.put("/answer/edit/00000000-0000-0000-0002-999999999999?content=edited_answer").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken4"))
+                .andExpect(status().isNotFound())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ANS-001"));
+        assertListing(questionId, answerId, "answer_to_change");
+    }
+
+    //creates a question of its own for a test, so that the answers of the seeded questions stay as they are
+    private String createQuestion() throws Exception {
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.post("/question/create?content=question_for_answers").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken4"))
+                .andExpect(status().isCreated())
+                .andReturn();
+        return JsonPath.read(result.getResponse().getContentAsString(), "$.id");
+    }
+
+    private String createAnswer(String questionId) throws Exception {
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.post("/question/" + questionId + "/answer/create?answer=answer_to_change").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken4"))
+                .andExpect(status().isCreated())
+                .andReturn();
+        return JsonPath.read(result.getResponse().getContentAsString(), "$.id");
+    }
+
+    //reads the answer listing of a question, which also puts it into the answer listing cache
+    private void assertListing(String questionId, String answerId, String answer) throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/answer/all/" + questionId).header("authorization", "database_accesstoken4"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").value(answerId))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].answerContent").value(answer));
+    }
+
+    private static String bulkContent(int count) {
+        List<String> requests = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            requests.add("{\"answer\":\"bulk_answer_" + i + "\"}");
+        }
+        return "[" + String.join(",", requests) + "]";
+    }
 }
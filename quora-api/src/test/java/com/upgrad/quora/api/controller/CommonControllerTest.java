@@ -1,6 +1,7 @@
 package com.upgrad.quora.api.controller;
 
 
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -11,6 +12,8 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
+import javax.persistence.EntityManagerFactory;
+
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @RunWith(SpringRunner.class)
@@ -21,17 +24,27 @@ public class CommonControllerTest {
     @Autowired
     private MockMvc mvc;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private StatementBudget budget;
+
+    @Before
+    public void setUpStatementBudget() {
+        budget = new StatementBudget(entityManagerFactory);
+    }
+
     //This test case passes when you try to get the details of the existing user and the JWT token entered exists in the database and the user corresponding to that JWT token is signed in.
     @Test
     public void details() throws Exception {
-        mvc.perform(MockMvcRequestBuilders.get("/userprofile/database_uuid1").header("authorization", "database_accesstoken"))
+        mvc.perform(MockMvcRequestBuilders.get("/userprofile/00000000-0000-0000-0000-000000001026").header("authorization", "database_accesstoken"))
                 .andExpect(status().isOk());
     }
 
     //This test case passes when you try to get the details of the existing user but the JWT token entered does not exist in the database.
     @Test
     public void detailsUsingNonExistingAccessToken() throws Exception {
-        mvc.perform(MockMvcRequestBuilders.get("/userprofile/database_uuid1").header("authorization", "non_existing_access_token"))
+        mvc.perform(MockMvcRequestBuilders.get("/userprofile/00000000-0000-0000-0000-000000001026").header("authorization", "non_existing_access_token"))
                 .andExpect(status().isForbidden())
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-001"));
     }
@@ -43,4 +56,12 @@ public class CommonControllerTest {
                 .andExpect(status().isNotFound())
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("USR-001"));
     }
+
+    //This test case passes when the details of a user are fetched within the statement budget of one token lookup and one user lookup.
+    @Test
+    public void detailsWithinStatementBudget() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/userprofile/00000000-0000-0000-0000-000000001026").header("authorization", "database_accesstoken4").with(budget.track()))
+                .andExpect(status().isOk())
+                .andExpect(budget.atMost(2, 3));
+    }
 }
@@ -1,6 +1,7 @@
 package com.upgrad.quora.api.controller;
 
-
+import com.jayway.jsonpath.JsonPath;
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -9,9 +10,18 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @RunWith(SpringRunner.class)
@@ -23,6 +33,16 @@ public class QuestionControllerTest {
     @Autowired
     private MockMvc mvc;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private StatementBudget budget;
+
+    @Before
+    public void setUpStatementBudget() {
+        budget = new StatementBudget(entityManagerFactory);
+    }
+
 
     //This test case passes when you try to create the question but the JWT token entered does not exist in the database.
     @Test
@@ -32,6 +52,14 @@ public class QuestionControllerTest {
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-001"));
     }
 
+    //This test case passes when you try to create many questions at once but the JWT token entered does not exist in the database.
+    @Test
+    public void createQuestionsWithNonExistingAccessToken() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.post("/question/bulk").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).content("[{\"content\":\"my_question\"},{\"content\":\"my_other_question\"}]").header("authorization", "non_existing_access_token"))
+                .andExpect(status().isForbidden())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-001"));
+    }
+
     //This test case passes when you try to create the question but the user corresponding to the JWT token entered is signed out of the application.
     @Test
     public void createQuestionWithSignedOutUser() throws Exception {
@@ -47,6 +75,14 @@ public class QuestionControllerTest {
                 .andExpect(status().isOk());
     }
 
+    //This test case passes when you try to get a page of questions with a cursor that was not issued by the application.
+    @Test
+    public void getAllQuestionsWithInvalidCursor() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/question/all?cursor=not_a_cursor&limit=10").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isBadRequest())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("PAGE-001"));
+    }
+
     //This test case passes when you try to get the detail of all the questions but the JWT token entered does not exist in the database.
     @Test
     public void getAllQuestionsWithNonExistingAccessToken() throws Exception {
@@ -55,6 +91,14 @@ public class QuestionControllerTest {
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-001"));
     }
 
+    //This test case passes when you try to stream all the questions but the JWT token entered does not exist in the database.
+    @Test
+    public void streamAllQuestionsWithNonExistingAccessToken() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/question/stream").header("authorization", "non_existing_access_token"))
+                .andExpect(status().isForbidden())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-001"));
+    }
+
     //This test case passes when you try to get the detail of all the questions and the JWT token entered exists in the database but the user corresponding to that JWT token is signed out.
     @Test
     public void getAllQuestionsWithSignedOutUser() throws Exception {
@@ -66,7 +110,7 @@ public class QuestionControllerTest {
     //This test case passes when you try to edit the question but the JWT token entered does not exist in the database.
     @Test
     public void editQuestionWithNonExistingAccessToken() throws Exception {
-        mvc.perform(MockMvcRequestBuilders.put("/question/edit/database_question_uuid?content=edited_question").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "non_existing_access_token"))
+        mvc.perform(MockMvcRequestBuilders.put("/question/edit/00000000-0000-0000-0001-000000001024?content=edited_question").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "non_existing_access_token"))
                 .andExpect(status().isForbidden())
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-001"));
     }
@@ -74,7 +118,7 @@ public class QuestionControllerTest {
     //This test case passes when you try to edit the question and the JWT token entered exists in the database but the user corresponding to that JWT token is signed out.
     @Test
     public void editQuestionWithWithSignedOutUser() throws Exception {
-        mvc.perform(MockMvcRequestBuilders.put("/question/edit/database_question_uuid?content=edited_question").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken3"))
+        mvc.perform(MockMvcRequestBuilders.put("/question/edit/00000000-0000-0000-0001-000000001024?content=edited_question").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken3"))
                 .andExpect(status().isForbidden())
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-002"));
     }
@@ -82,7 +126,7 @@ public class QuestionControllerTest {
     //This test case passes when you try to edit the question and the JWT token entered exists in the database and the user corresponding to that JWT token is signed in but the corresponding user is not the owner of the question.
     @Test
     public void editQuestionWithoutOwnership() throws Exception {
-        mvc.perform(MockMvcRequestBuilders.put("/question/edit/database_question_uuid?content=edited_question").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken"))
+        mvc.perform(MockMvcRequestBuilders.put("/question/edit/00000000-0000-0000-0001-000000001024?content=edited_question").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken"))
                 .andExpect(status().isForbidden())
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-003"));
     }
@@ -98,7 +142,7 @@ public class QuestionControllerTest {
     //This test case passes when you try to delete the question but the JWT token entered does not exist in the database.
     @Test
     public void deleteQuestionWithNonExistingAccessToken() throws Exception {
-        mvc.perform(MockMvcRequestBuilders.delete("/question/delete/database_question_uuid").header("authorization", "non_existing_access_token"))
+        mvc.perform(MockMvcRequestBuilders.delete("/question/delete/00000000-0000-0000-0001-000000001024").header("authorization", "non_existing_access_token"))
                 .andExpect(status().isForbidden())
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-001"));
     }
@@ -106,7 +150,7 @@ public class QuestionControllerTest {
     //This test case passes when you try to delete the question and the JWT token entered exists in the database but the user corresponding to that JWT token is signed out.
     @Test
     public void deleteQuestionWithSignedOutUser() throws Exception {
-        mvc.perform(MockMvcRequestBuilders.delete("/question/delete/database_question_uuid").header("authorization", "database_accesstoken3"))
+        mvc.perform(MockMvcRequestBuilders.delete("/question/delete/00000000-0000-0000-0001-000000001024").header("authorization", "database_accesstoken3"))
                 .andExpect(status().isForbidden())
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-002"));
     }
@@ -114,7 +158,7 @@ public class QuestionControllerTest {
     //This test case passes when you try to delete the question and the JWT token entered exists in the database and the user corresponding to that JWT token is signed in but the corresponding user is not the owner of the question or he is not the admin.
     @Test
     public void deleteQuestionWithoutOwnership() throws Exception {
-        mvc.perform(MockMvcRequestBuilders.delete("/question/delete/database_question_uuid").header("authorization", "database_accesstoken2"))
+        mvc.perform(MockMvcRequestBuilders.delete("/question/delete/00000000-0000-0000-0001-000000001024").header("authorization", "database_accesstoken2"))
                 .andExpect(status().isForbidden())
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-003"));
     }
@@ -131,7 +175,7 @@ public class QuestionControllerTest {
     //This test case passes when you try to get all the questions posted by a specific user but the JWT token entered does not exist in the database.
     @Test
     public void getAllQuestionsByUserWithNonExistingAccessToken() throws Exception {
-        mvc.perform(MockMvcRequestBuilders.get("/question/all/database_uuid1").header("authorization", "non_existing_access_token"))
+        mvc.perform(MockMvcRequestBuilders.get("/question/all/00000000-0000-0000-0000-000000001026").header("authorization", "non_existing_access_token"))
                 .andExpect(status().isForbidden())
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-001"));
     }
@@ -139,7 +183,7 @@ public class QuestionControllerTest {
     //This test case passes when you try to get all the questions posted by a specific user and the JWT token entered exists in the database but the user corresponding to that JWT token is signed out.
     @Test
     public void getAllQuestionsByUserWithSignedOutUser() throws Exception {
-        mvc.perform(MockMvcRequestBuilders.get("/question/all/database_uuid1").header("authorization", "database_accesstoken3"))
+        mvc.perform(MockMvcRequestBuilders.get("/question/all/00000000-0000-0000-0000-000000001026").header("authorization", "database_accesstoken3"))
                 .andExpect(status().isForbidden())
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-002"));
     }
@@ -152,6 +196,159 @@ public class QuestionControllerTest {
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("USR-001"));
     }
 
+    //This test case passes when a full page of questions is listed within its statement budget, i.e. the owners of the questions are not loaded one by one.
+    @Test
+    public void getAllQuestionsWithinStatementBudget() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/question/all?limit=100").header("authorization", "database_accesstoken4").with(budget.track()))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(100))
+                .andExpect(budget.atMost(2, 2));
+    }
 
-}
+    //This test case passes when a full page of the questions of one user is listed within its statement budget.
+    @Test
+    public void getAllQuestionsByUserWithinStatementBudget() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/question/all/00000000-0000-0000-0000-000000001027?limit=100").header("authorization", "database_accesstoken4").with(budget.track()))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(100))
+                .andExpect(budget.atMost(3, 3));
+    }
 
+    //This test case passes when an edit by a user who does not own the question is refused within its statement budget, i.e. the ownership check is part of the update and only the refused update is followed by a probe.
+    @Test
+    public void editQuestionWithoutOwnershipWithinStatementBudget() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.put("/question/edit/00000000-0000-0000-0001-000000001024?content=edited_question").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken4").with(budget.track()))
+                .andExpect(status().isForbidden())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-003"))
+                .andExpect(budget.atMost(3, 2));
+    }
+
+    //This test case passes when walking every page of the questions lists each seeded question exactly once, i.e. the cursor neither skips nor repeats questions of the same day.
+    @Test
+    public void getAllQuestionsPageByPage() throws Exception {
+        Set<String> ids = new HashSet<>();
+        String cursor = null;
+        do {
+            MvcResult result = mvc.perform(MockMvcRequestBuilders.get(cursor == null ? "/question/all?limit=100" : "/question/all?limit=100&cursor=" + cursor).header("authorization", "database_accesstoken4"))
+                    .andExpect(status().isOk())
+                    .andReturn();
+            List<String> page = JsonPath.read(result.getResponse().getContentAsString(), "$[*].id");
+            for (String id : page) {
+                assertTrue("Question " + id + " is listed twice", ids.add(id));
+            }
+            cursor = result.getResponse().getHeader("next-cursor");
+        } while (cursor != null);
+        for (int n = 2001; n <= 2200; n++) {
+            String id = String.format("00000000-0000-0000-0001-%012d", n);
+            assertTrue("Question " + id + " is missing", ids.contains(id));
+        }
+    }
+
+    //This test case passes when many questions are created at once and the ids in the response belong to the questions of the requests in the same order.
+    @Test
+    public void createQuestions() throws Exception {
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.post("/question/bulk").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).content(bulkContent(3)).header("authorization", "database_accesstoken4"))
+                .andExpect(status().isCreated())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(3))
+                .andReturn();
+        List<String> ids = JsonPath.read(result.getResponse().getContentAsString(), "$[*].id");
+        String listing = mvc.perform(MockMvcRequestBuilders.get("/question/all/00000000-0000-0000-0000-000000001029?limit=10").header("authorization", "database_accesstoken4"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        for (int i = 0; i < ids.size(); i++) {
+            List<String> content = JsonPath.read(listing, "$[?(@.id == '" + ids.get(i) + "')].content");
+            assertEquals("Question " + ids.get(i) + " does not belong to request " + i, "bulk_question_" + i, content.get(0));
+        }
+    }
+
+    //This test case passes when a request with more questions than a single request may create is refused.
+    @Test
+    public void createTooManyQuestions() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.post("/question/bulk").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).content(bulkContent(1001)).header("authorization", "database_accesstoken4"))
+                .andExpect(status().isPayloadTooLarge())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("BULK-001"));
+    }
+
+    //This test case passes when many questions are created within their statement budget, i.e. the inserts are sent in batches of 50 instead of one by one.
+    @Test
+    public void createQuestionsWithinStatementBudget() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.post("/question/bulk").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).content(bulkContent(120)).header("authorization", "database_accesstoken4").with(budget.track()))
+                .andExpect(status().isCreated())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(120))
+                .andExpect(budget.atMost(8, 2));
+    }
+
+    //This test case passes when the owner edits a question and the cached answer listing of the question shows the new question content right away.
+    @Test
+    public void editQuestionAsOwner() throws Exception {
+        String questionId = createQuestionWithAnswer();
+        assertAnswerListing(questionId, "question_to_change");
+        mvc.perform(MockMvcRequestBuilders.put("/question/edit/" + questionId + "?content=edited_question").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken4"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("id").value(questionId));
+        assertAnswerListing(questionId, "edited_question");
+    }
+
+    //This test case passes when the owner deletes a question and its cached answer listing is no longer served.
+    @Test
+    public void deleteQuestionAsOwner() throws Exception {
+        String questionId = createQuestionWithAnswer();
+        assertAnswerListing(questionId, "question_to_change");
+        mvc.perform(MockMvcRequestBuilders.delete("/question/delete/" + questionId).header("authorization", "database_accesstoken4"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("id").value(questionId));
+        mvc.perform(MockMvcRequestBuilders.get("/answer/all/" + questionId).header("authorization", "database_accesstoken4"))
+                .andExpect(status().isNotFound())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("QUES-001"));
+    }
+
+    //This test case passes when an admin deletes the question of another user and its cached answer listing is no longer served.
+    @Test
+    public void deleteQuestionAsAdmin() throws Exception {
+        String questionId = createQuestionWithAnswer();
+        assertAnswerListing(questionId, "question_to_change");
+        mvc.perform(MockMvcRequestBuilders.delete("/question/delete/" + questionId).header("authorization", "database_accesstoken5"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("id").value(questionId));
+        mvc.perform(MockMvcRequestBuilders.get("/answer/all/" + questionId).header("authorization", "database_accesstoken4"))
+                .andExpect(status().isNotFound())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("QUES-001"));
+    }
+
+    //This test case passes when a delete of a well formed question id that does not exist is refused and the cached answer listings stay as they were.
+    @Test
+    public void deleteUnknownQuestion() throws Exception {
+        String questionId = createQuestionWithAnswer();
+        assertAnswerListing(questionId, "question_to_change");
+        mvc.perform(MockMvcRequestBuilders.delete("/question/delete/00000000-0000-0000-0001-999999999999").header("authorization", "database_accesstoken4"))
+                .andExpect(status().isNotFound())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("QUES-001"));
+        assertAnswerListing(questionId, "question_to_change");
+    }
+
+    //creates a question of user 1029 with one answer, so that the question has an answer listing to cache
+    private String createQuestionWithAnswer() throws Exception {
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.post("/question/create?content=question_to_change").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken4"))
+                .andExpect(status().isCreated())
+                .andReturn();
+        String questionId = JsonPath.read(result.getResponse().getContentAsString(), "$.id");
+        mvc.perform(MockMvcRequestBuilders.post("/question/" + questionId + "/answer/create?answer=my_answer").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken4"))
+                .andExpect(status().isCreated());
+        return questionId;
+    }
+
+    //reads the answer listing of a question, which also puts it into the answer listing cache
+    private void assertAnswerListing(String questionId, String questionContent) throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/answer/all/" + questionId).header("authorization", "database_accesstoken4"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].questionContent").value(questionContent));
+    }
+
+    private static String bulkContent(int count) {
+        List<String> requests = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            requests.add("{\"content\":\"bulk_question_" + i + "\"}");
+        }
+        return "[" + String.join(",", requests) + "]";
+    }
+}
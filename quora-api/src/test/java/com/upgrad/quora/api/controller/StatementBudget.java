@@ -0,0 +1,53 @@
+package com.upgrad.quora.api.controller;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.test.web.servlet.ResultMatcher;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+import javax.persistence.EntityManagerFactory;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test helper which counts the SQL statements and entity loads Hibernate performs while MockMvc serves one request,
+ * so that an N+1 regression on an endpoint fails the build instead of going unnoticed.
+ * Usage: mvc.perform(get(...).with(budget.track())).andExpect(budget.atMost(statements, entityLoads))
+ */
+class StatementBudget {
+
+    private final Statistics statistics;
+
+    StatementBudget(EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        this.statistics.setStatisticsEnabled(true);
+    }
+
+    /**
+     * Method returns a request post processor which resets the counters right before the request is dispatched
+     * @return post processor to pass to MockHttpServletRequestBuilder.with
+     */
+    RequestPostProcessor track() {
+        return request -> {
+            statistics.clear();
+            return request;
+        };
+    }
+
+    /**
+     * Method returns a result matcher which fails when the tracked request went over its budget
+     * @param statements maximum number of prepared statements
+     * @param entityLoads maximum number of entities loaded into the persistence context
+     * @return result matcher to pass to ResultActions.andExpect
+     */
+    ResultMatcher atMost(long statements, long entityLoads) {
+        return result -> {
+            long prepared = statistics.getPrepareStatementCount();
+            long loaded = statistics.getEntityLoadCount();
+            assertTrue("Statement budget exceeded for " + result.getRequest().getRequestURI() + ": " + prepared + " statements, budget " + statements,
+                    prepared <= statements);
+            assertTrue("Entity load budget exceeded for " + result.getRequest().getRequestURI() + ": " + loaded + " entity loads, budget " + entityLoads,
+                    loaded <= entityLoads);
+        };
+    }
+}
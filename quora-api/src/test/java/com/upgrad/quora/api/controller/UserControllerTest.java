@@ -1,16 +1,22 @@
 package com.upgrad.quora.api.controller;
 
+import com.upgrad.quora.service.business.PasswordHashingExecutor;
+import com.upgrad.quora.service.constants.ErrorConditions;
+import com.upgrad.quora.service.exception.ServiceBusyException;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @RunWith(SpringRunner.class)
@@ -21,6 +27,9 @@ public class UserControllerTest {
     @Autowired
     private MockMvc mvc;
 
+    @MockBean
+    private PasswordHashingExecutor passwordHashingExecutor;
+
     //This test case passes when you signup with a username that already exists in the database.
     @Test
     public void signupWithRepeatedUserName() throws Exception {
@@ -45,4 +54,13 @@ public class UserControllerTest {
                 .andExpect(status().isUnauthorized())
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("SGR-001"));
     }
+
+    //This test case passes when you signup while the password hashing queue is full and the request is rejected as busy.
+    @Test
+    public void signupWhileHashingQueueIsFull() throws Exception {
+        when(passwordHashingExecutor.submit(any())).thenThrow(new ServiceBusyException(ErrorConditions.SERVICE_BUSY.getCode(), ErrorConditions.SERVICE_BUSY.getMessage()));
+        mvc.perform(MockMvcRequestBuilders.post("/user/signup?firstName=a&lastName=a&userName=busy_username&emailAddress=busy_email&password=a&country=a&aboutMe=a&dob=a&contactNumber=a").contentType(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("SRV-001"));
+    }
 }
@@ -2,15 +2,31 @@ package com.upgrad.quora.db.dao;
 
 import com.upgrad.quora.db.entity.AnswerEntity;
 import com.upgrad.quora.db.entity.QuestionEntity;
+import com.upgrad.quora.db.projection.AnswerSummary;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.IntegerType;
+import org.hibernate.type.PostgresUUIDType;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.EntityManager;
-import javax.persistence.NoResultException;
 import javax.persistence.PersistenceContext;
+import java.util.Collections;
 import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
 
 @Repository
 public class AnswerDao {
+
+    //the ownership check is part of the statement, so that an edit or delete takes a single round trip
+    private static final String UPDATE_ANSWER_CONTENT = "UPDATE answer a SET ans = :content FROM question q "
+            + "WHERE q.id = a.question_id AND a.uuid = :uuid AND a.user_id = :userId RETURNING a.id, q.uuid AS question_uuid";
+    private static final String DELETE_ANSWER = "DELETE FROM answer a USING question q "
+            + "WHERE q.id = a.question_id AND a.uuid = :uuid AND (a.user_id = :userId OR :isAdmin) RETURNING a.id, a.uuid, q.uuid AS question_uuid";
+
     @PersistenceContext
     EntityManager entityManager;
 
@@ -25,45 +41,105 @@ public class AnswerDao {
     }
 
     /**
-     * Methods takes an updated Answer Entity and stores it in the database
-     * @param answer Answer to the updated
-     * @return updated Answer Entity
+     * This method takes a list of Answer Entities and stores them in the database, flushing them in JDBC batches
+     * and detaching them after every batch so that the persistence context does not grow with the number of answers
+     * @param answers Answers that should be stored in the database
+     * @param batchSize number of answers per JDBC batch
+     * @return created Answer Entities
      */
-    public AnswerEntity updateAnswer(AnswerEntity answer){
-        entityManager.merge(answer);
-        return answer;
+    public List<AnswerEntity> createAnswers(List<AnswerEntity> answers, int batchSize) {
+        for (int i = 0; i < answers.size(); i++) {
+            entityManager.persist(answers.get(i));
+            if ((i + 1) % batchSize == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        entityManager.flush();
+        return answers;
     }
 
     /**
-     * Method takes Answer Entity and deletes it from the database
-     * @param answer Answer to be deleted
-     * @return deleted Answer Entity
+     * Method updates the content of an answer with a single statement, provided the answer is owned by the given user
+     * @param answerId id of the answer to be updated
+     * @param content new content of the answer
+     * @param userId id of the user editing the answer
+     * @return id of the question of the updated answer, null if the answer does not exist or is owned by another user
      */
-    public AnswerEntity deleteAnswer(AnswerEntity answer){
-        entityManager.remove(answer);
-        return answer;
+    public UUID updateAnswerContent(UUID answerId, String content, Integer userId){
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = entityManager.createNativeQuery(UPDATE_ANSWER_CONTENT).unwrap(NativeQuery.class)
+                .addScalar("id", IntegerType.INSTANCE)
+                .addScalar("question_uuid", PostgresUUIDType.INSTANCE)
+                .setParameter("uuid", answerId, PostgresUUIDType.INSTANCE)
+                .setParameter("content", content)
+                .setParameter("userId", userId)
+                .getResultList();
+        if (rows.isEmpty()) {
+            return null;
+        }
+        Integer id = (Integer) rows.get(0)[0];
+        //the update ran behind Hibernate's back, only the cached copy of this answer is stale
+        CacheEviction.afterCommit(entityManager, cache -> cache.evictEntity(AnswerEntity.class, id));
+        return (UUID) rows.get(0)[1];
     }
 
     /**
-     * Method takes an answerId, created a named query and fetches the answer from the database
-     * @param answerId Id of the answer to be fetched
-     * @return desired Answer Entity, null if no such entity exists
+     * Method removes an answer with a single statement, provided the answer is owned by the given user or the user is an admin
+     * @param answerId id of the answer to be removed
+     * @param userId id of the user removing the answer
+     * @param isAdmin whether the user is an admin, who may remove any answer
+     * @return id of the question of the removed answer, null if the answer does not exist or is owned by another user
      */
-    public AnswerEntity getAnswer(String answerId) {
-        try{
-            return entityManager.createNamedQuery("Answers.getById",AnswerEntity.class).setParameter("uuid",answerId).getSingleResult();
-        }
-        catch(NoResultException e){
+    public UUID deleteAnswer(UUID answerId, Integer userId, boolean isAdmin){
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = entityManager.createNativeQuery(DELETE_ANSWER).unwrap(NativeQuery.class)
+                .addScalar("id", IntegerType.INSTANCE)
+                .addScalar("uuid", PostgresUUIDType.INSTANCE)
+                .addScalar("question_uuid", PostgresUUIDType.INSTANCE)
+                .setParameter("uuid", answerId, PostgresUUIDType.INSTANCE)
+                .setParameter("userId", userId)
+                .setParameter("isAdmin", isAdmin)
+                .getResultList();
+        if (rows.isEmpty()) {
             return null;
         }
+        CacheEviction.evictEntitiesAfterCommit(entityManager, AnswerEntity.class, Collections.singletonMap((Integer) rows.get(0)[0], (UUID) rows.get(0)[1]));
+        return (UUID) rows.get(0)[2];
+    }
+
+    /**
+     * Method takes answer id as a parameter and checks whether the answer exists, through the natural id cache
+     * @param answerId id of the answer
+     * @return true if the answer exists
+     */
+    public boolean answerExists(UUID answerId){
+        return entityManager.unwrap(Session.class).bySimpleNaturalId(AnswerEntity.class).getReference(answerId) != null;
     }
 
     /**
-     * Method takes a question as input, creates a named query and fetches all answers posted on that question
+     * Method takes a question as input, creates a named query and fetches a summary of all answers posted on that question, oldest first
      * @param question Question on which all answers need to be read
-     * @return List of all answers for the input question, empty list if no answers available
+     * @return List of summaries of all answers for the input question, empty list if no answers available
      */
-    public List<AnswerEntity> getAnswersByQuestion(QuestionEntity question){
-        return entityManager.createNamedQuery("Answers.getByQuestion",AnswerEntity.class).setParameter("question",question).getResultList();
+    public List<AnswerSummary> getAnswersByQuestion(QuestionEntity question){
+        return entityManager.createNamedQuery("Answers.getByQuestion",AnswerSummary.class).setParameter("question",question).getResultList();
+    }
+
+    /**
+     * Method passes a summary of every answer posted on a question to an action, oldest first, reading the answers through a forward only cursor.
+     * Summaries are not managed by the persistence context, so memory use does not grow with the number of answers.
+     * Has to be called within a transaction, the database only streams rows within one.
+     * @param question Question on which all answers need to be read
+     * @param fetchSize number of rows fetched from the database at a time
+     * @param action action taking each answer summary
+     */
+    public void forEachAnswerByQuestion(QuestionEntity question, int fetchSize, Consumer<AnswerSummary> action){
+        try (ScrollableResults results = entityManager.unwrap(Session.class).createNamedQuery("Answers.getByQuestion", AnswerSummary.class).setParameter("question", question)
+                .setFetchSize(fetchSize).setReadOnly(true).scroll(ScrollMode.FORWARD_ONLY)) {
+            while (results.next()) {
+                action.accept((AnswerSummary) results.get(0));
+            }
+        }
     }
 }
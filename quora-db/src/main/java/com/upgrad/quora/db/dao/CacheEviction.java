@@ -0,0 +1,71 @@
+package com.upgrad.quora.db.dao;
+
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.hibernate.cache.spi.access.NaturalIdRegionAccessStrategy;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Evicts second-level cache regions, or single entities, for changes Hibernate does not see, such as rows removed by an ON DELETE CASCADE
+ * of the database or rows inserted with COPY. The eviction runs after the surrounding transaction commits,
+ * so that a concurrent reader can not put the old rows back into the cache in between.
+ */
+final class CacheEviction {
+
+    private CacheEviction() {
+    }
+
+    /**
+     * Method runs the eviction after the current transaction commits, or right away when no transaction is active
+     * @param entityManager entity manager of the calling DAO
+     * @param eviction regions to evict
+     */
+    static void afterCommit(EntityManager entityManager, Consumer<Cache> eviction) {
+        Cache cache = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getCache();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            eviction.accept(cache);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                eviction.accept(cache);
+            }
+        });
+    }
+
+    /**
+     * Method evicts single entities and their cached natural ids after the current transaction commits.
+     * The Cache API only evicts natural ids a whole region at a time, so the natural id keys are built through the persister
+     * while the session is still open, and evicted from the natural id region one by one.
+     * @param entityManager entity manager of the calling DAO
+     * @param entityClass class of the entities
+     * @param naturalIds natural ids of the entities by their ids
+     */
+    static void evictEntitiesAfterCommit(EntityManager entityManager, Class<?> entityClass, Map<? extends Serializable, ?> naturalIds) {
+        if (naturalIds.isEmpty()) {
+            return;
+        }
+        SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+        EntityPersister persister = session.getFactory().getMetamodel().entityPersister(entityClass);
+        NaturalIdRegionAccessStrategy naturalIdAccess = persister.hasNaturalIdCache() ? persister.getNaturalIdCacheAccessStrategy() : null;
+        List<Object> naturalIdKeys = new ArrayList<>(naturalIds.size());
+        if (naturalIdAccess != null) {
+            naturalIds.values().forEach(naturalId -> naturalIdKeys.add(naturalIdAccess.generateCacheKey(new Object[]{naturalId}, persister, session)));
+        }
+        afterCommit(entityManager, cache -> {
+            naturalIds.keySet().forEach(id -> cache.evictEntity(entityClass, id));
+            naturalIdKeys.forEach(key -> naturalIdAccess.evict(key));
+        });
+    }
+}
@@ -1,15 +1,38 @@
 package com.upgrad.quora.db.dao;
 
+import com.upgrad.quora.db.entity.AnswerEntity;
 import com.upgrad.quora.db.entity.QuestionEntity;
 import com.upgrad.quora.db.entity.UserEntity;
+import com.upgrad.quora.db.projection.QuestionSummary;
+import com.upgrad.quora.db.util.UuidCodec;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.IntegerType;
+import org.hibernate.type.PostgresUUIDType;
 import org.springframework.stereotype.Repository;
 
-import javax.persistence.*;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
 
 @Repository
 public class QuestionDao {
 
+    //the ownership check is part of the statement, so that an edit or delete takes a single round trip
+    private static final String UPDATE_QUESTION_CONTENT = "UPDATE question SET content = :content WHERE uuid = :uuid AND user_id = :userId RETURNING id";
+    //the answers removed by the ON DELETE CASCADE are read from the snapshot the delete runs on, so that only their cache entries are evicted
+    private static final String DELETE_QUESTION = "WITH deleted AS (DELETE FROM question WHERE uuid = :uuid AND (user_id = :userId OR :isAdmin) RETURNING id, uuid) "
+            + "SELECT d.id, d.uuid, a.id AS answer_id, a.uuid AS answer_uuid FROM deleted d LEFT JOIN answer a ON a.question_id = d.id";
+
     @PersistenceContext
     EntityManager entityManager;
 
@@ -24,49 +47,143 @@ public class QuestionDao {
     }
 
     /**
-     * Method takes question id as a parameter, and fetches a question from the database having the same id.
+     * Method takes a list of question entities and stores them in the database, flushing them in JDBC batches
+     * and detaching them after every batch so that the persistence context does not grow with the number of questions
+     * @param questions Questions to be stored
+     * @param batchSize number of questions per JDBC batch
+     * @return created question entities
+     */
+    public List<QuestionEntity> createQuestions(List<QuestionEntity> questions, int batchSize){
+        for (int i = 0; i < questions.size(); i++) {
+            entityManager.persist(questions.get(i));
+            if ((i + 1) % batchSize == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        entityManager.flush();
+        return questions;
+    }
+
+    /**
+     * Method takes question id as a parameter, and fetches a question having the same id through the natural id cache,
+     * the database is only queried when the question is not in the second-level cache.
      * @param questionId Question to fetch
-     * @return question question having id=questionId, null if no such question exists in the database
+     * @return question question having id=questionId, null if no such question exists in the database or the id is not a uuid
      */
     public QuestionEntity getQuestion(String questionId){
-        try{
-            return entityManager.createNamedQuery("Questions.getById",QuestionEntity.class).setParameter("questionId",questionId).getSingleResult();
-        }
-        catch(NoResultException e){
-            return null;
-        }
+        UUID uuid = UuidCodec.parse(questionId);
+        return uuid == null ? null : entityManager.unwrap(Session.class).bySimpleNaturalId(QuestionEntity.class).load(uuid);
+    }
+
+    /**
+     * Method takes question id as a parameter and checks whether the question exists, through the natural id cache
+     * @param questionId id of the question
+     * @return true if the question exists
+     */
+    public boolean questionExists(UUID questionId){
+        return entityManager.unwrap(Session.class).bySimpleNaturalId(QuestionEntity.class).getReference(questionId) != null;
     }
 
     /**
-     * Method takes a question entity as a parameter and removes it from the database (merge)
-     * @param question Question to be removed
+     * Method updates the content of a question with a single statement, provided the question is owned by the given user
+     * @param questionId id of the question to be updated
+     * @param content new content of the question
+     * @param userId id of the user editing the question
+     * @return true if the question was updated, false if it does not exist or is owned by another user
      */
-    public void deleteQuestion(QuestionEntity question){
-        entityManager.remove(question);
+    public boolean updateQuestionContent(UUID questionId, String content, Integer userId){
+        @SuppressWarnings("unchecked")
+        List<Integer> ids = entityManager.createNativeQuery(UPDATE_QUESTION_CONTENT).unwrap(NativeQuery.class)
+                .addScalar("id", IntegerType.INSTANCE)
+                .setParameter("uuid", questionId, PostgresUUIDType.INSTANCE)
+                .setParameter("content", content)
+                .setParameter("userId", userId)
+                .getResultList();
+        if (ids.isEmpty()) {
+            return false;
+        }
+        Integer id = ids.get(0);
+        //the update ran behind Hibernate's back, only the cached copy of this question is stale
+        CacheEviction.afterCommit(entityManager, cache -> cache.evictEntity(QuestionEntity.class, id));
+        return true;
     }
 
     /**
-     * Method takes a question entity as a parameter and updates it in the database (merge)
-     * @param question Question to be updated
+     * Method removes a question with a single statement, provided the question is owned by the given user or the user is an admin
+     * @param questionId id of the question to be removed
+     * @param userId id of the user removing the question
+     * @param isAdmin whether the user is an admin, who may remove any question
+     * @return true if the question was removed, false if it does not exist or is owned by another user
      */
-    public void updateQuestion(QuestionEntity question){
-        entityManager.merge(question);
+    public boolean deleteQuestion(UUID questionId, Integer userId, boolean isAdmin){
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = entityManager.createNativeQuery(DELETE_QUESTION).unwrap(NativeQuery.class)
+                .addScalar("id", IntegerType.INSTANCE)
+                .addScalar("uuid", PostgresUUIDType.INSTANCE)
+                .addScalar("answer_id", IntegerType.INSTANCE)
+                .addScalar("answer_uuid", PostgresUUIDType.INSTANCE)
+                .setParameter("uuid", questionId, PostgresUUIDType.INSTANCE)
+                .setParameter("userId", userId)
+                .setParameter("isAdmin", isAdmin)
+                .getResultList();
+        if (rows.isEmpty()) {
+            return false;
+        }
+        Map<Integer, UUID> answers = new HashMap<>();
+        for (Object[] row : rows) {
+            if (row[2] != null) {
+                answers.put((Integer) row[2], (UUID) row[3]);
+            }
+        }
+        //answers are removed by the ON DELETE CASCADE of the database, which the second-level cache does not see
+        CacheEviction.evictEntitiesAfterCommit(entityManager, QuestionEntity.class, Collections.singletonMap((Integer) rows.get(0)[0], (UUID) rows.get(0)[1]));
+        CacheEviction.evictEntitiesAfterCommit(entityManager, AnswerEntity.class, answers);
+        return true;
     }
 
     /**
-     * Method fetches questions available in the database irrespective of owner or posted user
-     * @return a list of all questions available in the database, empty list is no questions are found
+     * Method fetches one page of the questions available in the database irrespective of owner or posted user, newest first
+     * @param afterDate date of the last question of the previous page, null for the first page
+     * @param afterId id of the last question of the previous page
+     * @param limit maximum number of questions to fetch
+     * @return a list of question summaries ordered by date and id, empty list is no questions are found
      */
-    public List<QuestionEntity> getAllQuestions(){
-        return entityManager.createNamedQuery("Questions.fetchAll").getResultList();
+    public List<QuestionSummary> getAllQuestions(LocalDateTime afterDate, Integer afterId, int limit){
+        TypedQuery<QuestionSummary> query = afterDate == null
+                ? entityManager.createNamedQuery("Questions.fetchAll", QuestionSummary.class)
+                : entityManager.createNamedQuery("Questions.fetchAllAfter", QuestionSummary.class).setParameter("afterDate", afterDate).setParameter("afterId", afterId);
+        return query.setMaxResults(limit).getResultList();
     }
 
     /**
-     * Method takes user as a parameter and fetches all questions posted by the user
+     * Method takes user as a parameter and fetches one page of the questions posted by the user, newest first
      * @param user a user whose questions are to be fetched
-     * @return a list questions posted by the user, empty list is no questions are found
+     * @param afterDate date of the last question of the previous page, null for the first page
+     * @param afterId id of the last question of the previous page
+     * @param limit maximum number of questions to fetch
+     * @return a list of summaries of the questions posted by the user ordered by date and id, empty list is no questions are found
      */
-    public List<QuestionEntity> getUserQuestions(UserEntity user){
-        return entityManager.createNamedQuery("Questions.fetchByUserId").setParameter("user",user).getResultList();
+    public List<QuestionSummary> getUserQuestions(UserEntity user, LocalDateTime afterDate, Integer afterId, int limit){
+        TypedQuery<QuestionSummary> query = afterDate == null
+                ? entityManager.createNamedQuery("Questions.fetchByUserId", QuestionSummary.class)
+                : entityManager.createNamedQuery("Questions.fetchByUserIdAfter", QuestionSummary.class).setParameter("afterDate", afterDate).setParameter("afterId", afterId);
+        return query.setParameter("user", user).setMaxResults(limit).getResultList();
+    }
+
+    /**
+     * Method passes a summary of every question available in the database to an action, newest first, reading the questions through a forward only cursor.
+     * Summaries are not managed by the persistence context, so memory use does not grow with the number of questions.
+     * Has to be called within a transaction, the database only streams rows within one.
+     * @param fetchSize number of rows fetched from the database at a time
+     * @param action action taking each question summary
+     */
+    public void forEachQuestion(int fetchSize, Consumer<QuestionSummary> action){
+        try (ScrollableResults results = entityManager.unwrap(Session.class).createNamedQuery("Questions.fetchAll", QuestionSummary.class)
+                .setFetchSize(fetchSize).setReadOnly(true).scroll(ScrollMode.FORWARD_ONLY)) {
+            while (results.next()) {
+                action.accept((QuestionSummary) results.get(0));
+            }
+        }
     }
 }
@@ -1,7 +1,15 @@
 package com.upgrad.quora.db.dao;
 
+import com.upgrad.quora.db.entity.AnswerEntity;
+import com.upgrad.quora.db.entity.QuestionEntity;
+import com.upgrad.quora.db.entity.RevokedTokenEntity;
 import com.upgrad.quora.db.entity.UserAuthEntity;
 import com.upgrad.quora.db.entity.UserEntity;
+import com.upgrad.quora.db.util.UuidCodec;
+import org.hibernate.Cache;
+import org.hibernate.Session;
+import org.hibernate.query.NativeQuery;
+import org.postgresql.PGConnection;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
@@ -9,43 +17,120 @@ import org.springframework.transaction.annotation.Transactional;
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
 import javax.persistence.PersistenceContext;
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
 
 @Repository
 public class UserDao {
 
+    private static final String CREATE_IMPORT_TABLE = "CREATE TEMP TABLE user_import (row_no INTEGER, uuid UUID, firstname VARCHAR(30), lastname VARCHAR(30), username VARCHAR(30), "
+            + "email VARCHAR(50), password VARCHAR(255), salt VARCHAR(200), hash_iterations INTEGER, hash_key_length INTEGER, country VARCHAR(30), aboutme VARCHAR(50), "
+            + "dob VARCHAR(30), role VARCHAR(30), contactnumber VARCHAR(30)) ON COMMIT DROP";
+
+    private static final String COPY_IMPORT_TABLE = "COPY user_import FROM STDIN WITH (FORMAT csv)";
+
+    //Rows conflicting with an existing user or with an earlier row of the batch are skipped, a skipped row is reported as a username conflict if its username is taken, an email conflict otherwise
+    private static final String INSERT_IMPORTED_USERS = "WITH inserted AS ("
+            + "INSERT INTO users(uuid, firstname, lastname, username, email, password, salt, hash_iterations, hash_key_length, country, aboutme, dob, role, contactnumber) "
+            + "SELECT uuid, firstname, lastname, username, email, password, salt, hash_iterations, hash_key_length, country, aboutme, dob, role, contactnumber FROM user_import ORDER BY row_no "
+            + "ON CONFLICT DO NOTHING RETURNING uuid, username) "
+            + "SELECT i.row_no, ins.uuid IS NOT NULL, EXISTS (SELECT 1 FROM users u WHERE u.username = i.username) OR EXISTS (SELECT 1 FROM inserted d WHERE d.username = i.username AND d.uuid <> i.uuid) "
+            + "FROM user_import i LEFT JOIN inserted ins ON ins.uuid = i.uuid ORDER BY i.row_no";
+
     @PersistenceContext
     private EntityManager entityManager;
 
     /**
-     * Method takes userId as the parameter and fetches user formation form the database
+     * Method takes userId as the parameter and fetches user formation through the natural id cache, the database is only queried on a cache miss
      * @param userId id of the user whose information is to be retrieved
-     * @return desired User Entity
+     * @return desired User Entity, null if the user does not exist or the id is not a uuid
      */
     public UserEntity getUser(String userId) {
-        try {
-            return entityManager.createNamedQuery("Users.getById", UserEntity.class)
-                    .setParameter("uuid", userId)
-                    .getSingleResult();
-        } catch (NoResultException nre) {
-            return null;
-        }
+        UUID uuid = UuidCodec.parse(userId);
+        return uuid == null ? null : entityManager.unwrap(Session.class).bySimpleNaturalId(UserEntity.class).load(uuid);
     }
 
     /**
-     * Method takes authorization token as a parameter and fetches user authentication information
+     * Method takes authorization token as a parameter and fetches user authentication information by the digest of the token
      * @param authorizationToken authorization token
      * @return desired User Auth Entity
      */
     public UserAuthEntity getUserAuthToken(String authorizationToken) {
         try {
             return entityManager.createNamedQuery("UserAuths.getByAccessToken", UserAuthEntity.class)
-                    .setParameter("accessToken", authorizationToken)
+                    .setParameter("accessTokenHash", UserAuthEntity.hashAccessToken(authorizationToken))
                     .getSingleResult();
         } catch (NoResultException nre) {
             return null;
         }
     }
 
+    /**
+     * Method fetches the access tokens of all sessions that were signed out and logged in after the given time
+     * @param loginAfter only sessions logged in after this time are fetched
+     * @return list of [access token, login time] pairs, empty list if no such sessions exist
+     */
+    public List<Object[]> getSignedOutAccessTokens(LocalDateTime loginAfter) {
+        return entityManager.createNamedQuery("UserAuths.fetchSignedOutSince", Object[].class)
+                .setParameter("loginAfter", loginAfter)
+                .getResultList();
+    }
+
+    /**
+     * Method fetches the access tokens of all sessions of a user whose tokens have not expired yet, signed out or not
+     * @param user user whose sessions are fetched
+     * @param loginAfter sessions that started before this time carry expired tokens and are skipped
+     * @return list of [access token, login time] pairs, empty list if the user has no such sessions
+     */
+    public List<Object[]> getUnexpiredAccessTokens(UserEntity user, LocalDateTime loginAfter) {
+        return entityManager.createNamedQuery("UserAuths.fetchUnexpiredByUser", Object[].class)
+                .setParameter("user", user)
+                .setParameter("loginAfter", loginAfter)
+                .getResultList();
+    }
+
+    /**
+     * Method stores the revocation of an access token, a token that is already revoked is left as it is
+     * @param tokenId token id of the access token
+     * @param expiresAt expiry time of the access token, after which the revocation can be dropped
+     */
+    @Transactional(propagation = Propagation.REQUIRED)
+    public void createRevokedToken(UUID tokenId, LocalDateTime expiresAt) {
+        entityManager.createNativeQuery("INSERT INTO revoked_token(token_id, expires_at) VALUES (CAST(:tokenId AS uuid), :expiresAt) ON CONFLICT DO NOTHING")
+                .unwrap(NativeQuery.class).addSynchronizedEntityClass(RevokedTokenEntity.class)
+                .setParameter("tokenId", UuidCodec.format(tokenId))
+                .setParameter("expiresAt", expiresAt)
+                .executeUpdate();
+    }
+
+    /**
+     * Method fetches the token ids of all revoked access tokens that have not expired yet
+     * @return list of [token id, expiry time] pairs, empty list if no such tokens exist
+     */
+    public List<Object[]> getRevokedTokens() {
+        return entityManager.createNamedQuery("RevokedTokens.fetchUnexpired", Object[].class)
+                .setParameter("now", LocalDateTime.now())
+                .getResultList();
+    }
+
+    /**
+     * Method deletes the revocations of access tokens that have expired, which are rejected on their expiry anyway
+     * @param expiredBefore revocations of tokens that expired before this time are deleted
+     * @return number of deleted revocations
+     */
+    @Transactional(propagation = Propagation.REQUIRED)
+    public int deleteExpiredRevokedTokens(LocalDateTime expiredBefore) {
+        return entityManager.createNativeQuery("DELETE FROM revoked_token WHERE expires_at <= :expiredBefore")
+                .unwrap(NativeQuery.class).addSynchronizedEntityClass(RevokedTokenEntity.class)
+                .setParameter("expiredBefore", expiredBefore)
+                .executeUpdate();
+    }
+
     /**
      * Method takes User Entity as a parameter and deletes it from the database
      * @param user User Entity to be deleted
@@ -53,6 +138,13 @@ public class UserDao {
      */
     public UserEntity deleteUser(UserEntity user) {
         entityManager.remove(user);
+        //questions and answers of the user are removed by the ON DELETE CASCADE of the database, which the second-level cache does not see
+        CacheEviction.afterCommit(entityManager, cache -> {
+            cache.evictEntityRegion(QuestionEntity.class);
+            cache.evictNaturalIdRegion(QuestionEntity.class);
+            cache.evictEntityRegion(AnswerEntity.class);
+            cache.evictNaturalIdRegion(AnswerEntity.class);
+        });
         return user;
     }
 
@@ -68,24 +160,89 @@ public class UserDao {
     }
 
     /**
-     * This method takes userName or Email as the input, creates a named query and fetches user information from the database
+     * This method takes an updated User Entity and stores it in the database
+     * @param user User Entity to be updated
+     * @return updated User Entity
+     */
+    @Transactional(propagation = Propagation.REQUIRED)
+    public UserEntity updateUser(UserEntity user) {
+        return entityManager.merge(user);
+    }
+
+    /**
+     * This method stores a new password hash of a user, together with the salt and hash parameters it was made with.
+     * The four values are applied to a freshly loaded user in one transaction, so that they are never stored apart.
+     * @param userId id of the user
+     * @param salt salt of the new hash
+     * @param password new password hash
+     * @param hashIterations iteration count of the new hash
+     * @param hashKeyLength key length of the new hash
+     */
+    @Transactional(propagation = Propagation.REQUIRED)
+    public void updatePasswordHash(Integer userId, String salt, String password, Integer hashIterations, Integer hashKeyLength) {
+        UserEntity user = entityManager.find(UserEntity.class, userId);
+        if (user != null) {
+            user.setSalt(salt);
+            user.setPassword(password);
+            user.setHashIterations(hashIterations);
+            user.setHashKeyLength(hashKeyLength);
+        }
+    }
+
+    /**
+     * This method takes userName or Email as the input and fetches user information from the database.
+     * The identifier is classified once by the presence of '@': an email is looked up in the email index only,
+     * anything else in the username index only, so a miss costs a single probe and the lookup never needs an OR over both columns.
+     * A user whose username contains '@' therefore has to sign in with the email.
      * @param emailOrUserName Email or Username
      * @return User Entity with matching email or username
      */
     public UserEntity getUserByEmailOrUserName(String emailOrUserName) {
+        return emailOrUserName.indexOf('@') >= 0 ? getUserByEmail(emailOrUserName) : getUserByUserName(emailOrUserName);
+    }
+
+    /**
+     * This method takes userName as the input and fetches user information from the database
+     * @param userName Username
+     * @return User Entity with matching username
+     */
+    public UserEntity getUserByUserName(String userName) {
+        try{
+            return entityManager.createNamedQuery("Users.getByUserName", UserEntity.class).setParameter("userName",userName).getSingleResult();
+        }
+        catch(NoResultException e){
+            return null;
+        }
+    }
+
+    /**
+     * This method takes Email as the input and fetches user information from the database
+     * @param email Email
+     * @return User Entity with matching email
+     */
+    public UserEntity getUserByEmail(String email) {
         try{
-            return entityManager.createNamedQuery("Users.userByEmailOrUserName", UserEntity.class).setParameter("emailOrUserName",emailOrUserName).getSingleResult();
+            return entityManager.createNamedQuery("Users.getByEmail", UserEntity.class).setParameter("email",email).getSingleResult();
         }
         catch(NoResultException e){
             return null;
         }
     }
 
+    /**
+     * Method fetches the username and email of every user
+     * @return list of [username, email] pairs
+     */
+    public List<Object[]> getUserNamesAndEmails() {
+        return entityManager.createNamedQuery("Users.fetchUserNamesAndEmails", Object[].class).getResultList();
+    }
+
     /**
      * Method take User Auth Entity and a parameter and stores it in the database
      * @param userAuth User Authentication information to be stored
      * @return created User Authentication information
      */
+    @Transactional(propagation = Propagation.REQUIRED)
     public UserAuthEntity createUserAuth(UserAuthEntity userAuth) {
         entityManager.persist(userAuth);
         return userAuth;
@@ -100,4 +257,69 @@ public class UserDao {
         entityManager.merge(userAuth);
         return userAuth;
     }
+
+    /**
+     * Method deletes one batch of sessions that expired before the given time and were logged in before the given time.
+     * Rows locked by other transactions are skipped, and the statement gives up waiting for locks after the lock timeout,
+     * so that a batch never holds up sign ins or sign outs for long.
+     * @param expiredBefore only sessions that expired before this time are deleted
+     * @param loginBefore only sessions logged in before this time are deleted
+     * @param batchSize maximum number of sessions deleted
+     * @param lockTimeoutMillis maximum time in milliseconds to wait for a lock
+     * @return number of sessions deleted
+     */
+    @Transactional(propagation = Propagation.REQUIRED)
+    public int deleteExpiredUserAuths(LocalDateTime expiredBefore, LocalDateTime loginBefore, int batchSize, long lockTimeoutMillis) {
+        //both statements only touch user_auth, declaring that keeps Hibernate from evicting every second-level cache region after them
+        entityManager.createNativeQuery("SET LOCAL lock_timeout = " + lockTimeoutMillis).unwrap(NativeQuery.class)
+                .addSynchronizedEntityClass(UserAuthEntity.class).executeUpdate();
+        return entityManager.createNativeQuery("DELETE FROM user_auth WHERE id IN (SELECT id FROM user_auth WHERE expires_at < :expiredBefore AND login_at < :loginBefore ORDER BY expires_at LIMIT :batchSize FOR UPDATE SKIP LOCKED)")
+                .unwrap(NativeQuery.class).addSynchronizedEntityClass(UserAuthEntity.class)
+                .setParameter("expiredBefore", expiredBefore)
+                .setParameter("loginBefore", loginBefore)
+                .setParameter("batchSize", batchSize)
+                .executeUpdate();
+    }
+
+    /**
+     * Method stores a batch of new users with a single COPY into a temporary table followed by a single insert.
+     * Users whose username or email is already taken, by an existing user or by an earlier user of the batch, are skipped.
+     * @param users User Entities to be stored, with hashed passwords
+     * @return list of [index in users, stored, username taken] triples, ordered by index
+     */
+    @Transactional(propagation = Propagation.REQUIRED)
+    public List<Object[]> importUsers(List<UserEntity> users) {
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(CREATE_IMPORT_TABLE);
+            }
+            try {
+                connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_IMPORT_TABLE, new StringReader(toCsv(users)));
+            } catch (IOException e) {
+                throw new SQLException("Copying imported users failed", e);
+            }
+        });
+        @SuppressWarnings("unchecked")
+        List<Object[]> results = entityManager.createNativeQuery(INSERT_IMPORTED_USERS).getResultList();
+        //the users were inserted behind Hibernate's back, cached username and email lookups may still say they do not exist
+        CacheEviction.afterCommit(entityManager, Cache::evictDefaultQueryRegion);
+        return results;
+    }
+
+    private static String toCsv(List<UserEntity> users) {
+        StringBuilder csv = new StringBuilder(users.size() * 256);
+        for (int i = 0; i < users.size(); i++) {
+            UserEntity user = users.get(i);
+            csv.append(i);
+            for (Object value : new Object[]{user.getUuid(), user.getFirstName(), user.getLastName(), user.getUserName(), user.getEmail(), user.getPassword(), user.getSalt(),
+                    user.getHashIterations(), user.getHashKeyLength(), user.getCountry(), user.getAboutMe(), user.getDob(), user.getRole(), user.getContactNumber()}) {
+                csv.append(',');
+                if (value != null) {
+                    csv.append('"').append(value.toString().replace("\"", "\"\"")).append('"');
+                }
+            }
+            csv.append('\n');
+        }
+        return csv.toString();
+    }
 }
@@ -1,31 +1,45 @@
 package com.upgrad.quora.db.entity;
 
 import org.apache.commons.lang3.builder.*;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 import org.hibernate.annotations.OnDelete;
 import org.hibernate.annotations.OnDeleteAction;
+import org.hibernate.annotations.Type;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
 import java.io.Serializable;
 import java.time.LocalDate;
+import java.util.UUID;
 
 @Entity
 @Table(name = "answer")
+@BatchSize(size = 25)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@NaturalIdCache
 @NamedQueries({
         @NamedQuery(name = "Answers.getById", query = "SELECT a FROM AnswerEntity a WHERE a.uuid = :uuid"),
-        @NamedQuery(name = "Answers.getByQuestion", query = "SELECT a FROM AnswerEntity a WHERE a.question = :question")
+        @NamedQuery(name = "Answers.getByQuestion", query = "SELECT new com.upgrad.quora.db.projection.AnswerSummary(a.id, a.uuid, a.answer, a.date, q.content) FROM AnswerEntity a JOIN a.question q WHERE q = :question ORDER BY a.date, a.id")
 })
 public class AnswerEntity implements Serializable {
     @Id
     @Column(name = "id")
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    //pooled sequence, one round trip reserves 50 ids so that inserts can be batched, must match the increment of the sequence
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "answer_id_seq")
+    @SequenceGenerator(name = "answer_id_seq", sequenceName = "answer_id_seq", allocationSize = 50)
     private Integer id;
 
+    @NaturalId
     @Column(name = "uuid")
+    @Type(type = "pg-uuid")
     @NotNull
-    @Size(max = 200)
-    private String uuid;
+    private UUID uuid;
 
     @Column(name = "ans")
     @NotNull
@@ -36,7 +50,7 @@ public class AnswerEntity implements Serializable {
     @NotNull
     private LocalDate date;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
     @OnDelete(action = OnDeleteAction.CASCADE)
     @NotNull
@@ -45,7 +59,7 @@ public class AnswerEntity implements Serializable {
     @EqualsExclude
     private UserEntity user;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "question_id")
     @OnDelete(action = OnDeleteAction.CASCADE)
     @NotNull
@@ -62,11 +76,11 @@ public class AnswerEntity implements Serializable {
         this.id = id;
     }
 
-    public String getUuid() {
+    public UUID getUuid() {
         return uuid;
     }
 
-    public void setUuid(String uuid) {
+    public void setUuid(UUID uuid) {
         this.uuid = uuid;
     }
 
@@ -1,32 +1,48 @@
 package com.upgrad.quora.db.entity;
 
 import org.apache.commons.lang3.builder.*;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 import org.hibernate.annotations.OnDelete;
 import org.hibernate.annotations.OnDeleteAction;
+import org.hibernate.annotations.Type;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
 import java.io.Serializable;
-import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
 
 @Entity
 @Table(name = "question")
+@BatchSize(size = 25)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@NaturalIdCache
 @NamedQueries({
         @NamedQuery(name="Questions.getById",query = "SELECT q FROM QuestionEntity q WHERE q.uuid=:questionId"),
-        @NamedQuery(name = "Questions.fetchByUserId", query = "SELECT q FROM QuestionEntity q WHERE q.user=:user"),
-        @NamedQuery(name="Questions.fetchAll", query = "SELECT q FROM QuestionEntity q")
+        @NamedQuery(name = "Questions.fetchByUserId", query = "SELECT new com.upgrad.quora.db.projection.QuestionSummary(q.id, q.uuid, q.content, q.date) FROM QuestionEntity q WHERE q.user=:user ORDER BY q.date DESC, q.id DESC"),
+        @NamedQuery(name = "Questions.fetchByUserIdAfter", query = "SELECT new com.upgrad.quora.db.projection.QuestionSummary(q.id, q.uuid, q.content, q.date) FROM QuestionEntity q WHERE q.user=:user AND q.date <= :afterDate AND (q.date < :afterDate OR q.id < :afterId) ORDER BY q.date DESC, q.id DESC"),
+        @NamedQuery(name="Questions.fetchAll", query = "SELECT new com.upgrad.quora.db.projection.QuestionSummary(q.id, q.uuid, q.content, q.date) FROM QuestionEntity q ORDER BY q.date DESC, q.id DESC"),
+        @NamedQuery(name="Questions.fetchAllAfter", query = "SELECT new com.upgrad.quora.db.projection.QuestionSummary(q.id, q.uuid, q.content, q.date) FROM QuestionEntity q WHERE q.date <= :afterDate AND (q.date < :afterDate OR q.id < :afterId) ORDER BY q.date DESC, q.id DESC")
 })
 public class QuestionEntity implements Serializable {
     @Id
     @Column(name = "id")
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    //pooled sequence, one round trip reserves 50 ids so that inserts can be batched, must match the increment of the sequence
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "question_id_seq")
+    @SequenceGenerator(name = "question_id_seq", sequenceName = "question_id_seq", allocationSize = 50)
     private Integer id;
 
+    @NaturalId
     @Column(name = "uuid")
+    @Type(type = "pg-uuid")
     @NotNull
-    @Size(max = 200)
-    private String uuid;
+    private UUID uuid;
 
     @Column(name = "content")
     @NotNull
@@ -35,9 +51,9 @@ public class QuestionEntity implements Serializable {
 
     @Column(name = "date")
     @NotNull
-    private LocalDate date;
+    private LocalDateTime date;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
     @OnDelete(action = OnDeleteAction.CASCADE)
     @NotNull
@@ -54,11 +70,11 @@ public class QuestionEntity implements Serializable {
         this.id = id;
     }
 
-    public String getUuid() {
+    public UUID getUuid() {
         return uuid;
     }
 
-    public void setUuid(String uuid) {
+    public void setUuid(UUID uuid) {
         this.uuid = uuid;
     }
 
@@ -70,11 +86,11 @@ public class QuestionEntity implements Serializable {
         this.content = content;
     }
 
-    public LocalDate getDate() {
+    public LocalDateTime getDate() {
         return date;
     }
 
-    public void setDate(LocalDate date) {
+    public void setDate(LocalDateTime date) {
         this.date = date;
     }
 
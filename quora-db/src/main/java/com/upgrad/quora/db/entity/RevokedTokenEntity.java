@@ -0,0 +1,61 @@
+package com.upgrad.quora.db.entity;
+
+import org.apache.commons.lang3.builder.*;
+import org.hibernate.annotations.Type;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * An access token that must be rejected before it expires, identified by its token id ("jti" claim).
+ * Revocations are kept apart from the sessions in USER_AUTH, so that they survive the delete of the user.
+ */
+@Entity
+@Table(name = "revoked_token")
+@NamedQueries({
+        @NamedQuery(name = "RevokedTokens.fetchUnexpired", query = "SELECT r.tokenId, r.expiresAt FROM RevokedTokenEntity r WHERE r.expiresAt > :now")
+})
+public class RevokedTokenEntity implements Serializable {
+    @Id
+    @Column(name = "TOKEN_ID")
+    @Type(type = "pg-uuid")
+    private UUID tokenId;
+
+    @Column(name = "EXPIRES_AT")
+    @NotNull
+    private LocalDateTime expiresAt;
+
+    public UUID getTokenId() {
+        return tokenId;
+    }
+
+    public void setTokenId(UUID tokenId) {
+        this.tokenId = tokenId;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(LocalDateTime expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return EqualsBuilder.reflectionEquals(this,obj,Boolean.FALSE);
+    }
+
+    @Override
+    public int hashCode() {
+        return HashCodeBuilder.reflectionHashCode(this,Boolean.FALSE);
+    }
+
+    @Override
+    public String toString() {
+        return ToStringBuilder.reflectionToString(this, ToStringStyle.MULTI_LINE_STYLE);
+    }
+}
@@ -8,12 +8,17 @@ import javax.persistence.*;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
 import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "user_auth")
 @NamedQueries({
-        @NamedQuery(name = "UserAuths.getByAccessToken", query = "SELECT u FROM UserAuthEntity u WHERE u.accessToken=:accessToken")
+        @NamedQuery(name = "UserAuths.getByAccessToken", query = "SELECT u FROM UserAuthEntity u JOIN FETCH u.user WHERE u.accessTokenHash=:accessTokenHash"),
+        @NamedQuery(name = "UserAuths.fetchSignedOutSince", query = "SELECT u.accessToken, u.loginAt FROM UserAuthEntity u WHERE u.logoutAt IS NOT NULL AND u.loginAt > :loginAfter"),
+        @NamedQuery(name = "UserAuths.fetchUnexpiredByUser", query = "SELECT u.accessToken, u.loginAt FROM UserAuthEntity u WHERE u.user = :user AND u.loginAt > :loginAfter")
 })
 public class UserAuthEntity implements Serializable {
     @Id
@@ -31,6 +36,11 @@ public class UserAuthEntity implements Serializable {
     @NotNull
     private String accessToken;
 
+    @Column(name = "ACCESS_TOKEN_HASH")
+    @NotNull
+    @ToStringExclude
+    private byte[] accessTokenHash;
+
     @Column(name = "EXPIRES_AT")
     @NotNull
     private LocalDateTime expiresAt;
@@ -42,7 +52,7 @@ public class UserAuthEntity implements Serializable {
     @Column(name = "LOGOUT_AT")
     private LocalDateTime logoutAt;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "USER_ID")
     @OnDelete(action = OnDeleteAction.CASCADE)
     @ToStringExclude
@@ -70,8 +80,30 @@ public class UserAuthEntity implements Serializable {
         return accessToken;
     }
 
+    /**
+     * Sets the access token along with its SHA-256 digest, which is the key sessions are looked up by
+     * @param accessToken access token of the session
+     */
     public void setAccessToken(String accessToken) {
         this.accessToken = accessToken;
+        this.accessTokenHash = accessToken == null ? null : hashAccessToken(accessToken);
+    }
+
+    public byte[] getAccessTokenHash() {
+        return accessTokenHash;
+    }
+
+    /**
+     * Method computes the fixed width key of an access token
+     * @param accessToken access token to be hashed
+     * @return 32 byte SHA-256 digest of the access token
+     */
+    public static byte[] hashAccessToken(String accessToken) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(accessToken.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
     }
 
     public LocalDateTime getExpiresAt() {
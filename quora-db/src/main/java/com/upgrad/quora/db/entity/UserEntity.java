@@ -1,17 +1,32 @@
 package com.upgrad.quora.db.entity;
 
 import org.apache.commons.lang3.builder.*;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
+import org.hibernate.annotations.Type;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
 import java.io.Serializable;
+import java.util.UUID;
 
 @Entity
 @Table(name = "users")
+@BatchSize(size = 25)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@NaturalIdCache
 @NamedQueries({
         @NamedQuery(name = "Users.getById", query = "SELECT u FROM UserEntity u WHERE u.uuid = :uuid"),
-        @NamedQuery(name = "Users.userByEmailOrUserName", query = "select u from UserEntity u where u.userName = :emailOrUserName or u.email = :emailOrUserName")
+        @NamedQuery(name = "Users.getByUserName", query = "select u from UserEntity u where u.userName = :userName",
+                hints = @QueryHint(name = "org.hibernate.cacheable", value = "true")),
+        @NamedQuery(name = "Users.getByEmail", query = "select u from UserEntity u where u.email = :email",
+                hints = @QueryHint(name = "org.hibernate.cacheable", value = "true")),
+        @NamedQuery(name = "Users.fetchUserNamesAndEmails", query = "select u.userName, u.email from UserEntity u")
 })
 public class UserEntity implements Serializable {
     @Id
@@ -19,10 +34,11 @@ public class UserEntity implements Serializable {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Integer id;
 
+    @NaturalId
     @Column(name = "uuid")
-    @Size(max = 200)
+    @Type(type = "pg-uuid")
     @NotNull
-    private String uuid;
+    private UUID uuid;
 
     @Column(name = "firstname")
     @Size(max = 30)
@@ -55,6 +71,14 @@ public class UserEntity implements Serializable {
     @NotNull
     private String salt;
 
+    @ToStringExclude
+    @Column(name = "hash_iterations")
+    private Integer hashIterations;
+
+    @ToStringExclude
+    @Column(name = "hash_key_length")
+    private Integer hashKeyLength;
+
     @Column(name = "country")
     @Size(max = 30)
     private String country;
@@ -83,11 +107,11 @@ public class UserEntity implements Serializable {
         this.id = id;
     }
 
-    public String getUuid() {
+    public UUID getUuid() {
         return uuid;
     }
 
-    public void setUuid(String uuid) {
+    public void setUuid(UUID uuid) {
         this.uuid = uuid;
     }
 
@@ -139,6 +163,22 @@ public class UserEntity implements Serializable {
         this.salt = salt;
     }
 
+    public Integer getHashIterations() {
+        return hashIterations;
+    }
+
+    public void setHashIterations(Integer hashIterations) {
+        this.hashIterations = hashIterations;
+    }
+
+    public Integer getHashKeyLength() {
+        return hashKeyLength;
+    }
+
+    public void setHashKeyLength(Integer hashKeyLength) {
+        this.hashKeyLength = hashKeyLength;
+    }
+
     public String getCountry() {
         return country;
     }
@@ -0,0 +1,44 @@
+package com.upgrad.quora.db.projection;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Read only view of an answer and the content of its question for listings, built directly by projection queries without loading any entity
+ */
+public class AnswerSummary {
+
+    private final Integer id;
+    private final UUID uuid;
+    private final String answer;
+    private final LocalDate date;
+    private final String questionContent;
+
+    public AnswerSummary(Integer id, UUID uuid, String answer, LocalDate date, String questionContent) {
+        this.id = id;
+        this.uuid = uuid;
+        this.answer = answer;
+        this.date = date;
+        this.questionContent = questionContent;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public UUID getUuid() {
+        return uuid;
+    }
+
+    public String getAnswer() {
+        return answer;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public String getQuestionContent() {
+        return questionContent;
+    }
+}
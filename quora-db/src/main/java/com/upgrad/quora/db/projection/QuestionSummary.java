@@ -0,0 +1,38 @@
+package com.upgrad.quora.db.projection;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Read only view of a question for listings, built directly by projection queries without loading the question entity
+ */
+public class QuestionSummary {
+
+    private final Integer id;
+    private final UUID uuid;
+    private final String content;
+    private final LocalDateTime date;
+
+    public QuestionSummary(Integer id, UUID uuid, String content, LocalDateTime date) {
+        this.id = id;
+        this.uuid = uuid;
+        this.content = content;
+        this.date = date;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public UUID getUuid() {
+        return uuid;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public LocalDateTime getDate() {
+        return date;
+    }
+}
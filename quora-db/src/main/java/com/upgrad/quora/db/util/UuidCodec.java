@@ -0,0 +1,88 @@
+package com.upgrad.quora.db.util;
+
+import java.util.UUID;
+
+/**
+ * Parses and formats the canonical 36 character form of the uuids used as public ids, without the regular expression
+ * splitting and intermediate strings of UUID.fromString, and without its leniency towards malformed ids.
+ */
+public final class UuidCodec {
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private UuidCodec() {
+    }
+
+    /**
+     * Method parses an id of the form xxxxxxxx-xxxx-xxxx-xxxx-xxxxxxxxxxxx, upper or lower case
+     * @param id id to parse
+     * @return the uuid, null if the id is null or not a canonical uuid
+     */
+    public static UUID parse(String id) {
+        if (id == null || id.length() != 36
+                || id.charAt(8) != '-' || id.charAt(13) != '-' || id.charAt(18) != '-' || id.charAt(23) != '-') {
+            return null;
+        }
+        long most = 0;
+        long least = 0;
+        int digits = 0;
+        for (int i = 0; i < 36; i++) {
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                continue;
+            }
+            int value = hexValue(id.charAt(i));
+            if (value < 0) {
+                return null;
+            }
+            if (digits < 16) {
+                most = (most << 4) | value;
+            } else {
+                least = (least << 4) | value;
+            }
+            digits++;
+        }
+        return new UUID(most, least);
+    }
+
+    /**
+     * Method formats a uuid in its canonical lower case form
+     * @param uuid uuid to format
+     * @return the canonical form, null if the uuid is null
+     */
+    public static String format(UUID uuid) {
+        if (uuid == null) {
+            return null;
+        }
+        char[] chars = new char[36];
+        writeHex(chars, 0, uuid.getMostSignificantBits() >>> 32, 8);
+        chars[8] = '-';
+        writeHex(chars, 9, uuid.getMostSignificantBits() >>> 16, 4);
+        chars[13] = '-';
+        writeHex(chars, 14, uuid.getMostSignificantBits(), 4);
+        chars[18] = '-';
+        writeHex(chars, 19, uuid.getLeastSignificantBits() >>> 48, 4);
+        chars[23] = '-';
+        writeHex(chars, 24, uuid.getLeastSignificantBits(), 12);
+        return new String(chars);
+    }
+
+    private static int hexValue(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return -1;
+    }
+
+    private static void writeHex(char[] chars, int offset, long value, int length) {
+        for (int i = offset + length - 1; i >= offset; i--) {
+            chars[i] = HEX_DIGITS[(int) (value & 0xF)];
+            value >>>= 4;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+--V001: indexes for the filters of every named query and for the ON DELETE CASCADE of users and questions.
+--Applied after quora.sql by the setup profile, or against an existing database with mvn -Pmigrate process-resources.
+--Every statement is idempotent and builds its index without blocking writes, so the script must run with autocommit,
+--not inside a single transaction (no psql -1).
+
+--Answers.getByQuestion, filtered by question and ordered by date and id; also serves the cascade of a question delete
+CREATE INDEX CONCURRENTLY IF NOT EXISTS IDX_ANSWER_QUESTION_DATE_ID ON ANSWER(question_id, date, id);
+
+--Cascade of a user delete into the answers and sessions of the user
+CREATE INDEX CONCURRENTLY IF NOT EXISTS IDX_ANSWER_USER_ID ON ANSWER(user_id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS IDX_USER_AUTH_USER_ID ON USER_AUTH(user_id);
+
+--UserAuths.fetchSignedOutSince, only signed out sessions are indexed
+CREATE INDEX CONCURRENTLY IF NOT EXISTS IDX_USER_AUTH_SIGNED_OUT_LOGIN_AT ON USER_AUTH(login_at) WHERE logout_at IS NOT NULL;
+
+--Users.getById, Questions.getById and Answers.getById, for databases created before the uuid indexes were part of quora.sql
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS UK_USERS_UUID ON USERS(uuid);
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS UK_QUESTION_UUID ON QUESTION(uuid);
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS UK_ANSWER_UUID ON ANSWER(uuid);
+
+ANALYZE ANSWER;
+ANALYZE USER_AUTH;
@@ -0,0 +1,20 @@
+--V002: converts the public ids of a database created by an earlier quora.sql from VARCHAR(200) to native 16 byte uuids.
+--Applied after V001 by the setup and migrate profiles; a table whose ids are already uuids is left untouched, so the script
+--is idempotent like every migration. The conversion of the three tables is one statement and so one transaction.
+--The block is single quoted instead of dollar quoted, so that its semicolons are not taken as statement delimiters.
+--Ids that are not canonical uuids can not be kept as they are and are replaced by the md5 digest of the old id.
+--USER_AUTH.uuid is left as it is, it is never looked up.
+--The uuid indexes of V001 are rebuilt by the conversion; the converted tables are analyzed so that the planner sees the new column type.
+DO '
+DECLARE
+    canonical CONSTANT TEXT := ''^[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}$'';
+    tbl TEXT;
+BEGIN
+    FOREACH tbl IN ARRAY ARRAY[''users'', ''question'', ''answer''] LOOP
+        IF (SELECT data_type FROM information_schema.columns
+                WHERE table_schema = current_schema() AND table_name = tbl AND column_name = ''uuid'') <> ''uuid'' THEN
+            EXECUTE format(''ALTER TABLE %I ALTER COLUMN uuid TYPE UUID USING CASE WHEN uuid ~* %L THEN uuid::uuid ELSE md5(uuid)::uuid END'', tbl, canonical);
+            EXECUTE format(''ANALYZE %I'', tbl);
+        END IF;
+    END LOOP;
+END';
@@ -0,0 +1,11 @@
+--V003: question and answer ids are handed out 50 at a time by the pooled id generator of the application, which takes every
+--sequence value as the upper end of a block of 50 ids. A sequence still stepping by 1 hands overlapping blocks to every node
+--and to every restart, so this script must be applied before the application with the pooled generator is deployed.
+--Every statement is idempotent: the increment is set to the allocation size of the entities, and each sequence is moved past
+--the highest id in use but never back, so that blocks already reserved by running nodes stay valid.
+
+ALTER SEQUENCE question_id_seq INCREMENT BY 50;
+SELECT setval('question_id_seq', GREATEST((SELECT COALESCE(max(id), 1) FROM question), (SELECT last_value FROM question_id_seq)));
+
+ALTER SEQUENCE answer_id_seq INCREMENT BY 50;
+SELECT setval('answer_id_seq', GREATEST((SELECT COALESCE(max(id), 1) FROM answer), (SELECT last_value FROM answer_id_seq)));
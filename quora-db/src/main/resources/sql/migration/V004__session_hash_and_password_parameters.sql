@@ -0,0 +1,12 @@
+--V004: columns added to USERS and USER_AUTH since the first release of quora.sql, for databases created before them.
+--Every statement is idempotent. The backfill and the NOT NULL constraint must run before the application that looks sessions
+--up by ACCESS_TOKEN_HASH is deployed; sessions created by an older application in between are backfilled by a second run.
+
+--Password hash parameters stored with every hash, NULL stands for the legacy parameters the existing hashes were made with
+ALTER TABLE USERS ADD COLUMN IF NOT EXISTS hash_iterations INTEGER NULL;
+ALTER TABLE USERS ADD COLUMN IF NOT EXISTS hash_key_length INTEGER NULL;
+
+--SHA-256 digest of the UTF-8 bytes of the access token, the key sessions are looked up by
+ALTER TABLE USER_AUTH ADD COLUMN IF NOT EXISTS ACCESS_TOKEN_HASH BYTEA NULL;
+UPDATE USER_AUTH SET ACCESS_TOKEN_HASH = sha256(convert_to(ACCESS_TOKEN, 'UTF8')) WHERE ACCESS_TOKEN_HASH IS NULL;
+ALTER TABLE USER_AUTH ALTER COLUMN ACCESS_TOKEN_HASH SET NOT NULL;
@@ -0,0 +1,16 @@
+--V005: indexes added to quora.sql since its first release, for databases created before them. Applied after the columns of V004.
+--Every statement is idempotent and builds its index without blocking writes, so the script must run with autocommit.
+--A build that fails leaves an invalid index behind which IF NOT EXISTS skips, drop it before running the script again.
+
+--UserAuths.getByAccessToken, sessions are looked up by the 32 byte digest of the access token
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS UK_USER_AUTH_ACCESS_TOKEN_HASH ON USER_AUTH(ACCESS_TOKEN_HASH);
+
+--Reaper of expired sessions
+CREATE INDEX CONCURRENTLY IF NOT EXISTS IDX_USER_AUTH_EXPIRES_AT ON USER_AUTH(EXPIRES_AT);
+
+--Keyset pagination order (date, id) of the question listings
+CREATE INDEX CONCURRENTLY IF NOT EXISTS IDX_QUESTION_DATE_ID ON QUESTION(date DESC, id DESC);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS IDX_QUESTION_USER_DATE_ID ON QUESTION(user_id, date DESC, id DESC);
+
+ANALYZE USER_AUTH;
+ANALYZE QUESTION;
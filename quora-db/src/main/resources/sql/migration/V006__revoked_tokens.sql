@@ -0,0 +1,7 @@
+--V006: revocations of access tokens, kept apart from USER_AUTH so that they survive the delete of the user.
+--Every statement is idempotent.
+CREATE TABLE IF NOT EXISTS REVOKED_TOKEN(
+	TOKEN_ID UUID PRIMARY KEY,
+	EXPIRES_AT TIMESTAMP NOT NULL
+);
+CREATE INDEX IF NOT EXISTS IDX_REVOKED_TOKEN_EXPIRES_AT ON REVOKED_TOKEN(EXPIRES_AT);
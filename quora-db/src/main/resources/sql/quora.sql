@@ -1,10 +1,14 @@
+--Base schema, the scripts in sql/migration add to it and are applied after this file in version order (the setup profile runs both)
 
 --USERS table is created to store the details of all the users
 DROP TABLE IF EXISTS USERS CASCADE;
-CREATE TABLE IF NOT EXISTS USERS(id SERIAL, uuid VARCHAR(200) NOT NULL ,firstName VARCHAR(30) NOT NULL , lastName VARCHAR(30) NOT NULL ,userName VARCHAR(30) UNIQUE NOT NULL,  email VARCHAR(50) UNIQUE NOT NULL ,password VARCHAR(255) NOT NULL, salt VARCHAR(200) NOT NULL ,country VARCHAR(30) ,aboutMe VARCHAR(50),dob VARCHAR(30), role VARCHAR(30),contactNumber VARCHAR(30), PRIMARY KEY (id));
+CREATE TABLE IF NOT EXISTS USERS(id SERIAL, uuid UUID NOT NULL ,firstName VARCHAR(30) NOT NULL , lastName VARCHAR(30) NOT NULL ,userName VARCHAR(30) UNIQUE NOT NULL,  email VARCHAR(50) UNIQUE NOT NULL ,password VARCHAR(255) NOT NULL, salt VARCHAR(200) NOT NULL ,hash_iterations INTEGER NULL ,hash_key_length INTEGER NULL ,country VARCHAR(30) ,aboutMe VARCHAR(50),dob VARCHAR(30), role VARCHAR(30),contactNumber VARCHAR(30), PRIMARY KEY (id));
 INSERT INTO users(
 	id, uuid, firstname, lastname, username, email, password, salt, country, aboutme, dob, role, contactnumber)
-	VALUES (1024,'rdtrdtdyt','Abhi','Mahajan','abhi','a@gmail.com','507FF5FED1CAC746','8Xt6jxoCI3MWsVaKY/1ySAp2qzlb2Z7P89+vDrb1o6U=', 'India' ,'I am @ UpGrad' ,'22-10-1995' , 'admin' , '1222333333' );
+	VALUES (1024,'6f1c2a3e-1d2b-4c5a-9e8f-0a1b2c3d4e5f','Abhi','Mahajan','abhi','a@gmail.com','507FF5FED1CAC746','8Xt6jxoCI3MWsVaKY/1ySAp2qzlb2Z7P89+vDrb1o6U=', 'India' ,'I am @ UpGrad' ,'22-10-1995' , 'admin' , '1222333333' );
+
+--Public ids are stored as native 16 byte uuids, the unique index resolves them to rows
+CREATE UNIQUE INDEX IF NOT EXISTS UK_USERS_UUID ON USERS(uuid);
 
 --USER_AUTH table is created to store the login information of all the users
 DROP TABLE IF EXISTS USER_AUTH CASCADE;
@@ -13,18 +17,67 @@ CREATE TABLE IF NOT EXISTS USER_AUTH(
 	uuid VARCHAR(200) NOT NULL,
 	USER_ID INTEGER NOT NULL,
 	ACCESS_TOKEN VARCHAR(500) NOT NULL,
+	ACCESS_TOKEN_HASH BYTEA NOT NULL,
 	EXPIRES_AT TIMESTAMP NOT NULL,
 	LOGIN_AT TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
 	LOGOUT_AT TIMESTAMP NULL
 );
 
+--Sessions are looked up by the 32 byte SHA-256 digest of the access token, which keeps the index small
+CREATE UNIQUE INDEX IF NOT EXISTS UK_USER_AUTH_ACCESS_TOKEN_HASH ON USER_AUTH(ACCESS_TOKEN_HASH);
+
 ALTER TABLE USER_AUTH ADD CONSTRAINT FK_USER_AUTH_USER_ID FOREIGN KEY(USER_ID) REFERENCES USERS(ID) ON DELETE CASCADE ;
 
+--Index used by the reaper to find expired sessions
+CREATE INDEX IF NOT EXISTS IDX_USER_AUTH_EXPIRES_AT ON USER_AUTH(EXPIRES_AT);
+
+--REVOKED_TOKEN table stores the ids of access tokens that must be rejected before they expire, apart from USER_AUTH so that they survive the delete of the user
+DROP TABLE IF EXISTS REVOKED_TOKEN CASCADE;
+CREATE TABLE IF NOT EXISTS REVOKED_TOKEN(
+	TOKEN_ID UUID PRIMARY KEY,
+	EXPIRES_AT TIMESTAMP NOT NULL
+);
+CREATE INDEX IF NOT EXISTS IDX_REVOKED_TOKEN_EXPIRES_AT ON REVOKED_TOKEN(EXPIRES_AT);
+
+--Optional USER_AUTH layout range partitioned by EXPIRES_AT (PostgreSQL 11+), use it instead of the table above on busy installations.
+--Old partitions can then be dropped whole (DROP TABLE USER_AUTH_2024_01) instead of being reaped row by row and vacuumed.
+--Sign out moves EXPIRES_AT to the sign out time, which moves the row into an earlier partition.
+--DROP TABLE IF EXISTS USER_AUTH CASCADE;
+--CREATE TABLE IF NOT EXISTS USER_AUTH(
+--	ID BIGSERIAL,
+--	uuid VARCHAR(200) NOT NULL,
+--	USER_ID INTEGER NOT NULL REFERENCES USERS(ID) ON DELETE CASCADE,
+--	ACCESS_TOKEN VARCHAR(500) NOT NULL,
+--	ACCESS_TOKEN_HASH BYTEA NOT NULL,
+--	EXPIRES_AT TIMESTAMP NOT NULL,
+--	LOGIN_AT TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+--	LOGOUT_AT TIMESTAMP NULL,
+--	PRIMARY KEY (ID, EXPIRES_AT)
+--) PARTITION BY RANGE (EXPIRES_AT);
+--CREATE INDEX IF NOT EXISTS IDX_USER_AUTH_ACCESS_TOKEN_HASH ON USER_AUTH(ACCESS_TOKEN_HASH);
+--CREATE TABLE IF NOT EXISTS USER_AUTH_2024_01 PARTITION OF USER_AUTH FOR VALUES FROM ('2024-01-01') TO ('2024-02-01');
+--CREATE TABLE IF NOT EXISTS USER_AUTH_2024_02 PARTITION OF USER_AUTH FOR VALUES FROM ('2024-02-01') TO ('2024-03-01');
+--CREATE TABLE IF NOT EXISTS USER_AUTH_DEFAULT PARTITION OF USER_AUTH DEFAULT;
+
 --QUESTION table is created to store the questions related information posted by any user in the Application
 DROP TABLE IF EXISTS QUESTION CASCADE;
-CREATE TABLE IF NOT EXISTS QUESTION(id SERIAL,uuid VARCHAR(200) NOT NULL, content VARCHAR(500) NOT NULL, date TIMESTAMP NOT NULL , user_id INTEGER NOT NULL, PRIMARY KEY(id), FOREIGN KEY (user_id) REFERENCES USERS(id) ON DELETE CASCADE);
+CREATE TABLE IF NOT EXISTS QUESTION(id SERIAL,uuid UUID NOT NULL, content VARCHAR(500) NOT NULL, date TIMESTAMP NOT NULL , user_id INTEGER NOT NULL, PRIMARY KEY(id), FOREIGN KEY (user_id) REFERENCES USERS(id) ON DELETE CASCADE);
+
+CREATE UNIQUE INDEX IF NOT EXISTS UK_QUESTION_UUID ON QUESTION(uuid);
+
+--Indexes matching the keyset pagination order (date, id) of the question listings
+CREATE INDEX IF NOT EXISTS IDX_QUESTION_DATE_ID ON QUESTION(date DESC, id DESC);
+CREATE INDEX IF NOT EXISTS IDX_QUESTION_USER_DATE_ID ON QUESTION(user_id, date DESC, id DESC);
+
+--Question ids are handed out 50 at a time by the pooled id generator of the application, the increment must match its allocation size
+ALTER SEQUENCE question_id_seq INCREMENT BY 50;
 
 
 --ANSWER table is created to store the answers related information in reply to any question posted in the Application
 DROP TABLE IF EXISTS ANSWER CASCADE;
-CREATE TABLE IF NOT EXISTS ANSWER(id SERIAL,uuid VARCHAR(200) NOT NULL, ans VARCHAR(255) NOT NULL,date TIMESTAMP NOT NULL , user_id INTEGER NOT NULL, question_id INTEGER NOT NULL , PRIMARY KEY(id), FOREIGN KEY (user_id) REFERENCES USERS(id) ON DELETE CASCADE, FOREIGN KEY (question_id) REFERENCES QUESTION(id) ON DELETE CASCADE);
+CREATE TABLE IF NOT EXISTS ANSWER(id SERIAL,uuid UUID NOT NULL, ans VARCHAR(255) NOT NULL,date TIMESTAMP NOT NULL , user_id INTEGER NOT NULL, question_id INTEGER NOT NULL , PRIMARY KEY(id), FOREIGN KEY (user_id) REFERENCES USERS(id) ON DELETE CASCADE, FOREIGN KEY (question_id) REFERENCES QUESTION(id) ON DELETE CASCADE);
+
+CREATE UNIQUE INDEX IF NOT EXISTS UK_ANSWER_UUID ON ANSWER(uuid);
+
+--Answer ids are handed out 50 at a time by the pooled id generator of the application, the increment must match its allocation size
+ALTER SEQUENCE answer_id_seq INCREMENT BY 50;
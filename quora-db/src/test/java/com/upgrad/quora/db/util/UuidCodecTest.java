@@ -0,0 +1,58 @@
+package com.upgrad.quora.db.util;
+
+import org.junit.Test;
+
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class UuidCodecTest {
+
+    //This test case passes when formatting and parsing a uuid gives back the same uuid and the same form as UUID.toString.
+    @Test
+    public void parseAndFormatRoundTrip() {
+        for (int i = 0; i < 100; i++) {
+            UUID uuid = UUID.randomUUID();
+            String id = UuidCodec.format(uuid);
+            assertEquals(uuid.toString(), id);
+            assertEquals(uuid, UuidCodec.parse(id));
+        }
+        UUID edges = new UUID(0x0000000000000000L, 0xFFFFFFFFFFFFFFFFL);
+        assertEquals(edges, UuidCodec.parse(UuidCodec.format(edges)));
+    }
+
+    //This test case passes when an upper case id is parsed to the same uuid as its lower case form.
+    @Test
+    public void parseUpperCase() {
+        assertEquals(UUID.fromString("0f1e2d3c-4b5a-6978-8796-a5b4c3d2e1f0"), UuidCodec.parse("0F1E2D3C-4B5A-6978-8796-A5B4C3D2E1F0"));
+    }
+
+    //This test case passes when an id which is not 36 characters long is refused, including the short forms UUID.fromString accepts.
+    @Test
+    public void parseWrongLength() {
+        assertNull(UuidCodec.parse(null));
+        assertNull(UuidCodec.parse(""));
+        assertNull(UuidCodec.parse("1-2-3-4-5"));
+        assertNull(UuidCodec.parse("0f1e2d3c-4b5a-6978-8796-a5b4c3d2e1f"));
+        assertNull(UuidCodec.parse("0f1e2d3c-4b5a-6978-8796-a5b4c3d2e1f00"));
+    }
+
+    //This test case passes when a 36 character id whose dashes are not at the canonical positions is refused.
+    @Test
+    public void parseMisplacedDashes() {
+        assertNull(UuidCodec.parse("0f1e2d3c4-b5a-6978-8796-a5b4c3d2e1f0"));
+        assertNull(UuidCodec.parse("0f1e2d3c-4b5a-69788-796-a5b4c3d2e1f0"));
+        assertNull(UuidCodec.parse("0f1e2d3c-4b5a-6978-8796a-5b4c3d2e1f0"));
+        assertNull(UuidCodec.parse("0f1e2d3c04b5a06978087960a5b4c3d2e1f0"));
+    }
+
+    //This test case passes when an id with a character that is not a hexadecimal digit is refused.
+    @Test
+    public void parseNonHexCharacters() {
+        assertNull(UuidCodec.parse("0f1e2d3c-4b5a-6978-8796-a5b4c3d2e1fg"));
+        assertNull(UuidCodec.parse("x0000000-0000-0000-0000-000000000000"));
+        assertNull(UuidCodec.parse("00000000-0000-0000-0000-00000000000 "));
+        assertNull(UuidCodec.parse("00000000-0000-0000-0000-0000000000-0"));
+    }
+}
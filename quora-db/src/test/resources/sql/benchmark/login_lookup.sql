@@ -0,0 +1,44 @@
+--Compares the sign in lookup by username or email as a single OR query against a probe of one unique index.
+--Run against a scratch database after quora.sql, e.g. psql -d quora_bench -f login_lookup.sql
+--It is not part of the setup profile and, like the JMH benchmarks, is kept with the test sources so it never ships in the jar.
+
+--Load a few million users, the unique constraints on username and email provide the indexes being probed
+INSERT INTO users(uuid, firstname, lastname, username, email, password, salt, role)
+    SELECT md5(i::text)::uuid, 'first' || i, 'last' || i, 'user' || i, 'user' || i || '@example.com', 'password', 'salt', 'nonadmin'
+    FROM generate_series(1, 3000000) AS i;
+ANALYZE users;
+
+--Plans
+PREPARE by_either(varchar) AS SELECT * FROM users WHERE username = $1 OR email = $1;
+PREPARE by_username(varchar) AS SELECT * FROM users WHERE username = $1;
+PREPARE by_email(varchar) AS SELECT * FROM users WHERE email = $1;
+
+EXPLAIN (ANALYZE, BUFFERS) EXECUTE by_either('user1234567');
+EXPLAIN (ANALYZE, BUFFERS) EXECUTE by_username('user1234567');
+EXPLAIN (ANALYZE, BUFFERS) EXECUTE by_either('user1234567@example.com');
+EXPLAIN (ANALYZE, BUFFERS) EXECUTE by_email('user1234567@example.com');
+
+--Latency over 10000 random lookups each
+DO $$
+DECLARE
+    started TIMESTAMP;
+    found_user users%ROWTYPE;
+    login VARCHAR;
+    i INTEGER;
+BEGIN
+    started := clock_timestamp();
+    FOR i IN 1..10000 LOOP
+        login := 'user' || (random() * 2999999 + 1)::int;
+        SELECT * INTO found_user FROM users WHERE username = login OR email = login;
+    END LOOP;
+    RAISE NOTICE 'username or email: % ms', extract(epoch FROM clock_timestamp() - started) * 1000;
+
+    started := clock_timestamp();
+    FOR i IN 1..10000 LOOP
+        login := 'user' || (random() * 2999999 + 1)::int;
+        SELECT * INTO found_user FROM users WHERE username = login;
+    END LOOP;
+    RAISE NOTICE 'username only: % ms', extract(epoch FROM clock_timestamp() - started) * 1000;
+END $$;
+
+DEALLOCATE ALL;
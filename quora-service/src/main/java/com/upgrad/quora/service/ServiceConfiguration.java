@@ -4,11 +4,13 @@ package com.upgrad.quora.service;
 
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * Enabling the component scan and entity scan of classes in the below mentioned "com.upgrad.quora.service" and "com.upgrad.quora.service.entity" packages respectively.
  */
 @Configuration
+@EnableScheduling
 @ComponentScan(basePackages = {"com.upgrad.quora.service","com.upgrad.quora.db"})
 public class ServiceConfiguration {
 }
@@ -0,0 +1,73 @@
+package com.upgrad.quora.service.business;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.exceptions.TokenExpiredException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.upgrad.quora.db.entity.UserEntity;
+import com.upgrad.quora.db.util.UuidCodec;
+import com.upgrad.quora.service.constants.ErrorConditions;
+import com.upgrad.quora.service.exception.AuthorizationFailedException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * This class verifies access tokens locally, by their signature and expiry, when stateless verification is enabled.
+ * The key for the signature check is picked from the {@link SigningKeyRing} by the "kid" header of the token.
+ * Signed out tokens are rejected through the {@link TokenRevocationList}, so that a valid token never requires a database round trip.
+ */
+@Component
+public class AccessTokenVerifier {
+
+    @Autowired
+    private TokenRevocationList revocationList;
+
+    @Autowired
+    private SigningKeyRing keyRing;
+
+    @Value("${quora.auth.stateless:false}")
+    private boolean enabled;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Method takes an access token and builds the current user from its claims
+     * @param accessToken access token
+     * @return current user, null if the access token is not a token signed with a key of the key ring
+     * @throws AuthorizationFailedException if the access token has expired or has been signed out
+     */
+    public UserEntity verify(String accessToken) throws AuthorizationFailedException {
+        DecodedJWT jwt;
+        try {
+            JwtTokenProvider tokenProvider = keyRing.getProvider(JWT.decode(accessToken).getKeyId());
+            if (tokenProvider == null) {
+                return null;
+            }
+            jwt = tokenProvider.verifyToken(accessToken);
+        } catch (TokenExpiredException e) {
+            throw new AuthorizationFailedException(ErrorConditions.USER_GET_AUTH_FAILURE.getCode(), ErrorConditions.USER_GET_AUTH_FAILURE.getMessage());
+        } catch (JWTVerificationException e) {
+            return null;
+        }
+        if (revocationList.isRevoked(jwt.getId())) {
+            throw new AuthorizationFailedException(ErrorConditions.USER_GET_AUTH_FAILURE.getCode(), ErrorConditions.USER_GET_AUTH_FAILURE.getMessage());
+        }
+        if (jwt.getAudience() == null || jwt.getAudience().isEmpty() || jwt.getClaim(JwtTokenProvider.USER_ID_CLAIM).isNull()) {
+            return null;
+        }
+        UUID userUuid = UuidCodec.parse(jwt.getAudience().get(0));
+        if (userUuid == null) {
+            return null;
+        }
+        UserEntity user = new UserEntity();
+        user.setUuid(userUuid);
+        user.setId(jwt.getClaim(JwtTokenProvider.USER_ID_CLAIM).asInt());
+        user.setRole(jwt.getClaim(JwtTokenProvider.ROLE_CLAIM).asString());
+        return user;
+    }
+}
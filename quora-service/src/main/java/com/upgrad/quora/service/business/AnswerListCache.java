@@ -0,0 +1,160 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.db.projection.AnswerSummary;
+import com.upgrad.quora.service.utils.BoundedExpiringCache;
+import com.upgrad.quora.service.utils.RequestCoalescer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * This class caches the answer listing of every recently read question, keyed by the question uuid,
+ * so that a question whose answers are read over and over is served from memory.
+ * A listing is removed whenever an answer of the question is created, edited or deleted, or the question itself is edited or deleted.
+ * Concurrent misses for the same question share one read, but only reads that started in the same invalidation generation,
+ * so that a reader never joins a read that started before a change it must see.
+ */
+@Component
+public class AnswerListCache implements MeterBinder {
+
+    private final BoundedExpiringCache<UUID, List<AnswerSummary>> cache;
+
+    //incremented by every invalidation, a listing read from the database is only cached if no invalidation happened while it was read
+    private final AtomicLong generation = new AtomicLong();
+
+    private final RequestCoalescer<ListingRead, List<AnswerSummary>> reads;
+
+    public AnswerListCache(@Value("${quora.answer-cache.max-size:1000}") int maxSize,
+                           @Value("${quora.answer-cache.ttl-seconds:60}") long ttlSeconds,
+                           @Value("${quora.coalescing.timeout-ms:5000}") long coalescingTimeoutMillis) {
+        this.cache = new BoundedExpiringCache<>(maxSize, ttlSeconds * 1000);
+        this.reads = new RequestCoalescer<>(coalescingTimeoutMillis);
+    }
+
+    /**
+     * Method takes a question uuid and returns its cached answer listing, or reads the listing and caches it
+     * @param questionUuid uuid of the question whose answers are listed
+     * @param loader reads the answer listing from the database
+     * @return unmodifiable answer listing of the question
+     */
+    public List<AnswerSummary> get(UUID questionUuid, Supplier<List<AnswerSummary>> loader) {
+        List<AnswerSummary> answers = cache.get(questionUuid);
+        if (answers != null) {
+            return answers;
+        }
+        long readGeneration = generation.get();
+        answers = reads.execute(new ListingRead(questionUuid, readGeneration), () -> Collections.unmodifiableList(loader.get()));
+        if (generation.get() == readGeneration) {
+            cache.put(questionUuid, answers);
+            //an invalidation may have slipped in between the check and the put
+            if (generation.get() != readGeneration) {
+                cache.invalidate(questionUuid);
+            }
+        }
+        return answers;
+    }
+
+    /**
+     * Method removes the answer listing of a question from the cache, and again once the surrounding transaction commits
+     * so that a concurrent request cannot re-cache the old listing before the change is visible in the database
+     * @param questionUuid uuid of the question whose answers changed
+     */
+    public void invalidate(UUID questionUuid) {
+        generation.incrementAndGet();
+        cache.invalidate(questionUuid);
+        afterCommit(() -> {
+            generation.incrementAndGet();
+            cache.invalidate(questionUuid);
+        });
+    }
+
+    /**
+     * Method removes every answer listing from the cache, used when answers of many questions change at once
+     */
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        cache.invalidateAll();
+        afterCommit(() -> {
+            generation.incrementAndGet();
+            cache.invalidateAll();
+        });
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        cache.bindTo(registry, "answer-listings");
+        reads.bindTo(registry, "answer-listing");
+    }
+
+    public long getHitCount() {
+        return cache.getHitCount();
+    }
+
+    public long getMissCount() {
+        return cache.getMissCount();
+    }
+
+    public long getEvictionCount() {
+        return cache.getEvictionCount();
+    }
+
+    /**
+     * Method returns the share of listings served from memory since startup
+     * @return hit rate between 0 and 1, 0 if no listing was read yet
+     */
+    public double getHitRate() {
+        long hits = cache.getHitCount();
+        long total = hits + cache.getMissCount();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    //a read of the answers of a question, started in a given invalidation generation
+    private static final class ListingRead {
+        private final UUID questionUuid;
+        private final long generation;
+
+        private ListingRead(UUID questionUuid, long generation) {
+            this.questionUuid = questionUuid;
+            this.generation = generation;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof ListingRead)) {
+                return false;
+            }
+            ListingRead read = (ListingRead) other;
+            return generation == read.generation && questionUuid.equals(read.questionUuid);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(questionUuid, generation);
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        }
+    }
+}
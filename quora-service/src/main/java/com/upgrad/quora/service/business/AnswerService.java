@@ -6,17 +6,23 @@ import com.upgrad.quora.db.dao.UserDao;
 import com.upgrad.quora.db.entity.AnswerEntity;
 import com.upgrad.quora.db.entity.QuestionEntity;
 import com.upgrad.quora.db.entity.UserEntity;
+import com.upgrad.quora.db.projection.AnswerSummary;
+import com.upgrad.quora.db.util.UuidCodec;
 import com.upgrad.quora.service.constants.ErrorConditions;
 import com.upgrad.quora.service.constants.UserRole;
 import com.upgrad.quora.service.exception.AnswerNotFoundException;
 import com.upgrad.quora.service.exception.AuthorizationFailedException;
+import com.upgrad.quora.service.exception.BulkRequestTooLargeException;
 import com.upgrad.quora.service.exception.InvalidQuestionException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
 
 @Service
 public class AnswerService {
@@ -30,6 +36,18 @@ public class AnswerService {
     @Autowired
     UserService userService;
 
+    @Autowired
+    AnswerListCache answerListCache;
+
+    @Value("${quora.streaming.fetch-size:500}")
+    private int streamFetchSize;
+
+    @Value("${quora.bulk.max-items:1000}")
+    private int bulkMaxItems;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int jdbcBatchSize;
+
     /**
      * Method takes an answer as input and stores it in the database
      * @param answer answer to be stored
@@ -42,7 +60,9 @@ public class AnswerService {
             QuestionEntity question = questionService.getQuestion(questionId);
             answer.setUser(user);
             answer.setQuestion(question);
-            return answerDao.createAnswer(answer);
+            answerDao.createAnswer(answer);
+            answerListCache.invalidate(question.getUuid());
+            return answer;
         } catch(AuthorizationFailedException e){
             if(e.getCode().equals(ErrorConditions.USER_SIGNED_OUT.getCode())){
                 throw new AuthorizationFailedException(ErrorConditions.ANS_CREATE_AUTH_FAILURE.getCode(), ErrorConditions.ANS_CREATE_AUTH_FAILURE.getMessage());
@@ -57,34 +77,63 @@ public class AnswerService {
     }
 
     /**
-     * Method takes answerId in input and fetches it from the database
-     * @param answerId id of answer to be retrieved
-     * @return desired Answer Entity
-     * @throws AnswerNotFoundException if an answer with input answerId doesn't exist
+     * Method takes a list of answers to a question as input and stores them in the database in JDBC batches, with a single authorization check
+     * @param token Authorization token
+     * @param questionId Id of the question that is answered
+     * @param answers answers to be stored
+     * @return persisted answers
+     * @throws BulkRequestTooLargeException if there are more answers than a single request may create
      */
-    public AnswerEntity getAnswer(String answerId) throws AnswerNotFoundException {
-        AnswerEntity answer = answerDao.getAnswer(answerId);
-        if(answer==null){
-            throw new AnswerNotFoundException(ErrorConditions.ANS_NOT_FOUND.getCode(),ErrorConditions.ANS_NOT_FOUND.getMessage());
+    @Transactional(propagation = Propagation.REQUIRED)
+    public List<AnswerEntity> createAnswers(String token, String questionId, List<AnswerEntity> answers) throws AuthorizationFailedException, InvalidQuestionException, BulkRequestTooLargeException {
+        try{
+            UserEntity user = userService.getCurrentUser(token);
+            QuestionEntity question = questionService.getQuestion(questionId);
+            if(answers.size() > bulkMaxItems){
+                throw new BulkRequestTooLargeException(ErrorConditions.BULK_TOO_LARGE.getCode(), ErrorConditions.BULK_TOO_LARGE.getMessage());
+            }
+            answers.forEach(answer -> {
+                answer.setUser(user);
+                answer.setQuestion(question);
+            });
+            answerDao.createAnswers(answers, jdbcBatchSize);
+            answerListCache.invalidate(question.getUuid());
+            return answers;
+        } catch(AuthorizationFailedException e){
+            if(e.getCode().equals(ErrorConditions.USER_SIGNED_OUT.getCode())){
+                throw new AuthorizationFailedException(ErrorConditions.ANS_CREATE_AUTH_FAILURE.getCode(), ErrorConditions.ANS_CREATE_AUTH_FAILURE.getMessage());
+            }
+            else{
+                throw e;
+            }
         }
-        else{
-            return answer;
+        catch(InvalidQuestionException e){
+            throw new InvalidQuestionException(ErrorConditions.ANS_CREATE_FAILURE.getCode(),ErrorConditions.ANS_CREATE_FAILURE.getMessage());
         }
     }
 
     /**
-     * Method takes current user and answer as input and updates the answer only if the current user is the answer owner
+     * Method takes an answer id and new content as input and updates the answer only if the current user is the answer owner.
+     * The ownership check is part of the update, the answer is only looked up again when the update changed nothing.
      * @param token Authorization token
-     * @param answer answer to be updated
-     * @return updated answer
+     * @param answerId Id of the answer to be updated
+     * @param content new content of the answer
+     * @return Id of the updated answer
      * @throws AuthorizationFailedException if a non-owner attempts to edit an answer
+     * @throws AnswerNotFoundException if an answer with input answerId doesn't exist
      */
     @Transactional(propagation = Propagation.REQUIRED)
-    public AnswerEntity editAnswer(String token, AnswerEntity answer) throws AuthorizationFailedException {
+    public String editAnswer(String token, String answerId, String content) throws AuthorizationFailedException, AnswerNotFoundException {
         try{
             UserEntity user = userService.getCurrentUser(token);
-            if(user.getId().equals(answer.getUser().getId())){
-                return answerDao.updateAnswer(answer);
+            UUID uuid = UuidCodec.parse(answerId);
+            UUID questionUuid = uuid == null ? null : answerDao.updateAnswerContent(uuid, content, user.getId());
+            if(questionUuid != null){
+                answerListCache.invalidate(questionUuid);
+                return UuidCodec.format(uuid);
+            }
+            else if(uuid == null || !answerDao.answerExists(uuid)){
+                throw new AnswerNotFoundException(ErrorConditions.ANS_NOT_FOUND.getCode(),ErrorConditions.ANS_NOT_FOUND.getMessage());
             }
             else{
                 throw new AuthorizationFailedException(ErrorConditions.ANS_EDIT_UNAUTHORIZED.getCode(),ErrorConditions.ANS_EDIT_UNAUTHORIZED.getMessage());
@@ -101,19 +150,27 @@ public class AnswerService {
     }
 
     /**
-     * Method takes current user and answer as input and deletes the answer only if the current user is an admin or the answer owner
+     * Method takes an answer id as input and deletes the answer only if the current user is an admin or the answer owner.
+     * The ownership check is part of the delete, the answer is only looked up again when the delete removed nothing.
      * @param token Authorization token
      * @param answerId Id of the answer to be deleted
-     * @return deleted answer
+     * @return Id of the deleted answer
      * @throws AuthorizationFailedException if a non-admin non-owner attempts to delete an answer
+     * @throws AnswerNotFoundException if an answer with input answerId doesn't exist
      */
     @Transactional(propagation = Propagation.REQUIRED)
-    public AnswerEntity deleteAnswer(String token, String answerId) throws AuthorizationFailedException, AnswerNotFoundException {
+    public String deleteAnswer(String token, String answerId) throws AuthorizationFailedException, AnswerNotFoundException {
         try{
             UserEntity user = userService.getCurrentUser(token);
-            AnswerEntity answer = this.getAnswer(answerId);
-            if(user.getId().equals(answer.getUser().getId()) || user.getRole().equalsIgnoreCase(UserRole.ADMIN.getRole())){
-                return answerDao.deleteAnswer(answer);
+            UUID uuid = UuidCodec.parse(answerId);
+            boolean isAdmin = user.getRole().equalsIgnoreCase(UserRole.ADMIN.getRole());
+            UUID questionUuid = uuid == null ? null : answerDao.deleteAnswer(uuid, user.getId(), isAdmin);
+            if(questionUuid != null){
+                answerListCache.invalidate(questionUuid);
+                return UuidCodec.format(uuid);
+            }
+            else if(uuid == null || !answerDao.answerExists(uuid)){
+                throw new AnswerNotFoundException(ErrorConditions.ANS_NOT_FOUND.getCode(),ErrorConditions.ANS_NOT_FOUND.getMessage());
             }
             else{
                 throw new AuthorizationFailedException(ErrorConditions.ANS_DELETE_UNAUTHORIZED.getCode(),ErrorConditions.ANS_DELETE_UNAUTHORIZED.getMessage());
@@ -130,16 +187,43 @@ public class AnswerService {
     }
 
     /**
-     * Method takes a question as parameter and fetches all answers posted on it from the database
+     * Method takes a question as parameter and fetches all answers posted on it, from the answer listing cache if the question was read recently
      * @param token Authorization token
      * @param questionId Id of question for which all answers are to be fetched
      * @return List of all answers for question, empty list of no answers are available
      */
-    public List<AnswerEntity> getAnswersForQuestion(String token, String questionId) throws InvalidQuestionException, AuthorizationFailedException {
+    @Transactional(readOnly = true)
+    public List<AnswerSummary> getAnswersForQuestion(String token, String questionId) throws InvalidQuestionException, AuthorizationFailedException {
         try{
             UserEntity user = userService.getCurrentUser(token);
             QuestionEntity question = questionService.getQuestion(questionId);
-            return answerDao.getAnswersByQuestion(question);
+            return answerListCache.get(question.getUuid(), () -> answerDao.getAnswersByQuestion(question));
+        }
+        catch(AuthorizationFailedException e){
+            if(e.getCode().equals(ErrorConditions.USER_SIGNED_OUT.getCode())){
+                throw new AuthorizationFailedException(ErrorConditions.ANS_GET_AUTH_FAILURE.getCode(), ErrorConditions.ANS_GET_AUTH_FAILURE.getMessage());
+            }
+            else{
+                throw e;
+            }
+        }
+        catch(InvalidQuestionException e){
+            throw new InvalidQuestionException(ErrorConditions.ANS_GET_FAILURE.getCode(),ErrorConditions.ANS_GET_FAILURE.getMessage());
+        }
+    }
+
+    /**
+     * Method checks that the current user may list the answers of a question, before a listing is streamed
+     * @param token Authorization token
+     * @param questionId Id of the question whose answers are listed
+     * @return the question whose answers are listed
+     * @throws AuthorizationFailedException if the authorization token is invalid, expired or not found
+     * @throws InvalidQuestionException if a question with input questionId doesn't exist
+     */
+    public QuestionEntity checkAnswerListing(String token, String questionId) throws InvalidQuestionException, AuthorizationFailedException {
+        try{
+            userService.getCurrentUser(token);
+            return questionService.getQuestion(questionId);
         }
         catch(AuthorizationFailedException e){
             if(e.getCode().equals(ErrorConditions.USER_SIGNED_OUT.getCode())){
@@ -153,4 +237,14 @@ public class AnswerService {
             throw new InvalidQuestionException(ErrorConditions.ANS_GET_FAILURE.getCode(),ErrorConditions.ANS_GET_FAILURE.getMessage());
         }
     }
+
+    /**
+     * Method passes every answer posted on a question to an action, oldest first, without holding all of them in memory
+     * @param question Question whose answers are listed
+     * @param action action taking each answer
+     */
+    @Transactional(readOnly = true)
+    public void forEachAnswer(QuestionEntity question, Consumer<AnswerSummary> action) {
+        answerDao.forEachAnswerByQuestion(question, streamFetchSize, action);
+    }
 }
@@ -0,0 +1,142 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.db.entity.UserAuthEntity;
+import com.upgrad.quora.db.entity.UserEntity;
+import com.upgrad.quora.service.utils.BoundedExpiringCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class caches the user behind every validated access token, so that repeated requests with the same token
+ * do not have to look up the user authentication information in the database.
+ * Only the id, uuid and role of the user are cached, the same projection {@link AccessTokenVerifier} builds from the token claims,
+ * so that password hashes and salts are not kept in memory for the lifetime of the token.
+ * An entry never outlives the expiry of its access token and is removed as soon as the user signs out or is deleted.
+ */
+@Component
+public class AuthTokenCache implements MeterBinder {
+
+    private final BoundedExpiringCache<String, UserEntity> cache;
+
+    //incremented by every invalidation, a token read from the database is only cached if no invalidation happened while it was read
+    private final AtomicLong generation = new AtomicLong();
+
+    public AuthTokenCache(@Value("${quora.auth.token-cache.max-size:10000}") int maxSize,
+                          @Value("${quora.auth.token-cache.ttl-seconds:300}") long ttlSeconds) {
+        this.cache = new BoundedExpiringCache<>(maxSize, ttlSeconds * 1000);
+    }
+
+    /**
+     * Method takes an access token and returns the user it was validated for
+     * @param accessToken access token
+     * @return id, uuid and role of the cached user, null if the token is not cached or has expired
+     */
+    public UserEntity getUser(String accessToken) {
+        return cache.get(accessToken);
+    }
+
+    /**
+     * Method returns the current invalidation generation, to be read before the user authentication information is looked up
+     * @return current invalidation generation
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    /**
+     * Method takes valid user authentication information and caches its user until the access token expires,
+     * unless a token was invalidated since the information was read
+     * @param userAuth validated user authentication information
+     * @param readGeneration generation returned by {@link #generation()} before the information was read
+     */
+    public void put(UserAuthEntity userAuth, long readGeneration) {
+        if (userAuth.getLogoutAt() != null || generation.get() != readGeneration) {
+            return;
+        }
+        cache.put(userAuth.getAccessToken(), principal(userAuth.getUser()), toEpochMillis(userAuth.getExpiresAt()));
+        //an invalidation may have slipped in between the check and the put
+        if (generation.get() != readGeneration) {
+            cache.invalidate(userAuth.getAccessToken());
+        }
+    }
+
+    /**
+     * Method removes an access token from the cache, and again once the surrounding transaction commits
+     * so that a concurrent request cannot re-cache the token before the sign out is visible in the database
+     * @param accessToken access token to be removed
+     */
+    public void invalidate(String accessToken) {
+        generation.incrementAndGet();
+        cache.invalidate(accessToken);
+        afterCommit(() -> {
+            generation.incrementAndGet();
+            cache.invalidate(accessToken);
+        });
+    }
+
+    /**
+     * Method removes all access tokens of a user from the cache
+     * @param userUuid uuid of the user whose tokens are to be removed
+     */
+    public void invalidateUser(UUID userUuid) {
+        generation.incrementAndGet();
+        cache.invalidateIf(user -> user.getUuid().equals(userUuid));
+        afterCommit(() -> {
+            generation.incrementAndGet();
+            cache.invalidateIf(user -> user.getUuid().equals(userUuid));
+        });
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        cache.bindTo(registry, "auth-tokens");
+    }
+
+    public long getHitCount() {
+        return cache.getHitCount();
+    }
+
+    public long getMissCount() {
+        return cache.getMissCount();
+    }
+
+    public long getEvictionCount() {
+        return cache.getEvictionCount();
+    }
+
+    private static UserEntity principal(UserEntity user) {
+        UserEntity principal = new UserEntity();
+        principal.setId(user.getId());
+        principal.setUuid(user.getUuid());
+        principal.setRole(user.getRole());
+        return principal;
+    }
+
+    private static long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        }
+    }
+}
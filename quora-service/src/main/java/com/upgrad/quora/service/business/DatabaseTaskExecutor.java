@@ -0,0 +1,79 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.constants.ErrorConditions;
+import com.upgrad.quora.service.exception.ServiceBusyException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class runs the database work that completes an asynchronous sign up or sign in, once the password has been hashed.
+ * Hashing threads hand the work over instead of blocking on a connection, so they stay busy with hashing only.
+ * The pool is sized like the connection pool by default and has a bounded queue, work submitted while the queue is full
+ * completes its future with {@link ServiceBusyException}.
+ */
+@Component
+public class DatabaseTaskExecutor implements MeterBinder {
+
+    private final ThreadPoolExecutor executor;
+
+    private final AtomicLong rejectedTasks = new AtomicLong();
+
+    public DatabaseTaskExecutor(@Value("${quora.database-tasks.pool-size:10}") int poolSize,
+                                @Value("${quora.database-tasks.queue-capacity:256}") int queueCapacity) {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("database-tasks-");
+        threadFactory.setDaemon(true);
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Method takes a database task and runs it on the database task pool
+     * @param task database task, expected to complete the result itself
+     * @param result future of the operation the task belongs to, completed with ServiceBusyException if the queue is full
+     */
+    public void execute(Runnable task, CompletableFuture<?> result) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            rejectedTasks.incrementAndGet();
+            result.completeExceptionally(new ServiceBusyException(ErrorConditions.SERVICE_BUSY.getCode(), ErrorConditions.SERVICE_BUSY.getMessage()));
+        }
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public long getRejectedCount() {
+        return rejectedTasks.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("executor.queued", this, DatabaseTaskExecutor::getQueueDepth).tag("name", "database-tasks").register(registry);
+        Gauge.builder("executor.active", this, DatabaseTaskExecutor::getActiveCount).tag("name", "database-tasks").register(registry);
+        FunctionCounter.builder("executor.rejected", this, DatabaseTaskExecutor::getRejectedCount).tag("name", "database-tasks").register(registry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,15 @@
+package com.upgrad.quora.service.business;
+
+import java.util.UUID;
+
+/**
+ * Generates the public ids of users, questions, answers and access tokens.
+ */
+public interface IdGenerator {
+
+    /**
+     * Method returns a new id, unique across all servers
+     * @return the new id
+     */
+    UUID nextId();
+}
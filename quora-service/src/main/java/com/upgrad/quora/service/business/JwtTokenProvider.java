@@ -1,15 +1,16 @@
 package com.upgrad.quora.service.business;
 
 import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTCreator;
+import com.auth0.jwt.JWTVerifier;
 import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.interfaces.DecodedJWT;
 import com.upgrad.quora.service.common.GenericErrorCode;
 import com.upgrad.quora.service.common.UnexpectedException;
-import org.springframework.stereotype.Component;
 
 import java.time.ZonedDateTime;
-import java.time.temporal.ChronoField;
 import java.util.Date;
-import java.util.UUID;
 
 /**
  * This class is used in the project to provide JWT token after successful authentication
@@ -18,19 +19,36 @@ import java.util.UUID;
 public class JwtTokenProvider {
     private static final String TOKEN_ISSUER = "https://quora.io";
 
+    static final String USER_ID_CLAIM = "uid";
+    static final String ROLE_CLAIM = "role";
+
+    private final String keyId;
+
     private final Algorithm algorithm;
 
+    private final JWTVerifier verifier;
+
+    private final IdGenerator idGenerator;
+
     /**
-     * A constructor for JwtTokenProvider class which receives user password as an argument to be used in the signature part of JWT access token.
+     * A constructor for JwtTokenProvider class which receives a key from the server key ring and its id, which is stored in the "kid" header of every token,
+     * and the generator of the token ids.
      */
-    public JwtTokenProvider(final String secret) {
+    public JwtTokenProvider(final String keyId, final byte[] secret, final IdGenerator idGenerator) {
         try {
+            this.keyId = keyId;
+            this.idGenerator = idGenerator;
             algorithm = Algorithm.HMAC512(secret);
+            verifier = JWT.require(algorithm).withIssuer(TOKEN_ISSUER).build();
         } catch (IllegalArgumentException e) {
             throw new UnexpectedException(GenericErrorCode.GEN_001);
         }
     }
 
+    public String getKeyId() {
+        return keyId;
+    }
+
 
     /**
      * This method receives uuid of the user, current time and expiry time of the access token.
@@ -43,14 +61,49 @@ public class JwtTokenProvider {
      * @return - generated JWT token
      */
     public String generateToken(final String userUuid, final ZonedDateTime issuedDateTime, final ZonedDateTime expiresDateTime) {
+        return generateToken(userUuid, null, null, issuedDateTime, expiresDateTime);
+    }
+
+    /**
+     * This method additionally stores the id and role of the user in the payload, so that the current user can be built from a verified token.
+     */
+    /**
+     * @param userUuid        - uuid of the user
+     * @param userId          - id of the user
+     * @param role            - role of the user
+     * @param issuedDateTime  - current time
+     * @param expiresDateTime - expiry time of the JWT token
+     * @return - generated JWT token
+     */
+    public String generateToken(final String userUuid, final Integer userId, final String role, final ZonedDateTime issuedDateTime, final ZonedDateTime expiresDateTime) {
 
-        final Date issuedAt = new Date(issuedDateTime.getLong(ChronoField.INSTANT_SECONDS));
-        final Date expiresAt = new Date(expiresDateTime.getLong(ChronoField.INSTANT_SECONDS));
+        final Date issuedAt = Date.from(issuedDateTime.toInstant());
+        final Date expiresAt = Date.from(expiresDateTime.toInstant());
 
-        return JWT.create().withIssuer(TOKEN_ISSUER) //
-                .withKeyId(UUID.randomUUID().toString())
+        JWTCreator.Builder builder = JWT.create().withIssuer(TOKEN_ISSUER) //
+                .withKeyId(keyId != null ? keyId : idGenerator.nextId().toString())
+                .withJWTId(idGenerator.nextId().toString())
                 .withAudience(userUuid) //
-                .withIssuedAt(issuedAt).withExpiresAt(expiresAt).sign(algorithm);
+                .withIssuedAt(issuedAt).withExpiresAt(expiresAt);
+        if (userId != null) {
+            builder.withClaim(USER_ID_CLAIM, userId);
+        }
+        if (role != null) {
+            builder.withClaim(ROLE_CLAIM, role);
+        }
+        return builder.sign(algorithm);
+    }
+
+    /**
+     * This method verifies the signature, issuer and expiry of a JWT token signed by this provider.
+     */
+    /**
+     * @param token - JWT token
+     * @return - decoded JWT token
+     * @throws JWTVerificationException if the token is malformed, not signed by this provider or expired
+     */
+    public DecodedJWT verifyToken(final String token) {
+        return verifier.verify(token);
     }
 
 }
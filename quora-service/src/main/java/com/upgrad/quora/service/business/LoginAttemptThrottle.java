@@ -0,0 +1,217 @@
+package com.upgrad.quora.service.business;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * This class counts failed sign in attempts per username and per client address over a sliding window,
+ * so that attempts over the limit can be rejected before the user is looked up or any password is hashed.
+ * Every attempt is counted as a failure when it is let through, and handed back once it succeeds, so that a burst of
+ * concurrent attempts cannot pass the limit while their passwords are still being hashed.
+ * Counters are updated lock free and idle counters are evicted periodically. The number of tracked keys is capped,
+ * once the cap is reached room is made for new keys by evicting idle counters first, then the counters that were least recently
+ * counted, so that filling the map cannot lock out users that have not been seen yet.
+ */
+@Component
+public class LoginAttemptThrottle {
+
+    private final int maxFailuresPerUser;
+    private final int maxFailuresPerAddress;
+    private final long windowMillis;
+    private final int maxTrackedKeys;
+
+    private final ConcurrentHashMap<String, SlidingWindowCounter> userFailures = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, SlidingWindowCounter> addressFailures = new ConcurrentHashMap<>();
+
+    public LoginAttemptThrottle(@Value("${quora.signin-throttle.max-failures-per-user:10}") int maxFailuresPerUser,
+                                @Value("${quora.signin-throttle.max-failures-per-address:50}") int maxFailuresPerAddress,
+                                @Value("${quora.signin-throttle.window-seconds:300}") long windowSeconds,
+                                @Value("${quora.signin-throttle.max-tracked-keys:100000}") int maxTrackedKeys) {
+        this.maxFailuresPerUser = maxFailuresPerUser;
+        this.maxFailuresPerAddress = maxFailuresPerAddress;
+        this.windowMillis = windowSeconds * 1000;
+        this.maxTrackedKeys = maxTrackedKeys;
+    }
+
+    /**
+     * Method reserves a sign in attempt, which counts as a failure until it is reported as a success or released
+     * @param userName username or email the attempt is made for
+     * @param clientAddress address of the client making the attempt
+     * @return false if the username or the client address is over its failure limit
+     */
+    public boolean tryAcquire(String userName, String clientAddress) {
+        long now = System.currentTimeMillis();
+        if (!tryIncrement(userFailures, userName, maxFailuresPerUser, now)) {
+            return false;
+        }
+        if (!tryIncrement(addressFailures, clientAddress, maxFailuresPerAddress, now)) {
+            decrement(userFailures, userName, now);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Method clears the failures of a username after a successful sign in, and hands back the attempt of the client address
+     * @param userName username or email that signed in
+     * @param clientAddress address of the client that signed in
+     */
+    public void recordSuccess(String userName, String clientAddress) {
+        if (userName != null) {
+            userFailures.remove(userName);
+        }
+        decrement(addressFailures, clientAddress, System.currentTimeMillis());
+    }
+
+    /**
+     * Method hands back a reserved attempt that could not be made, e.g. because the server was too busy to check the password
+     * @param userName username or email the attempt was reserved for
+     * @param clientAddress address of the client the attempt was reserved for
+     */
+    public void release(String userName, String clientAddress) {
+        long now = System.currentTimeMillis();
+        decrement(userFailures, userName, now);
+        decrement(addressFailures, clientAddress, now);
+    }
+
+    public int getTrackedKeys() {
+        return userFailures.size() + addressFailures.size();
+    }
+
+    /**
+     * Method drops counters without any failure in the current or the previous window
+     */
+    @Scheduled(fixedDelayString = "${quora.signin-throttle.eviction-interval-ms:60000}")
+    public void evictIdle() {
+        long window = System.currentTimeMillis() / windowMillis;
+        userFailures.values().removeIf(counter -> counter.isIdle(window));
+        addressFailures.values().removeIf(counter -> counter.isIdle(window));
+    }
+
+    private boolean tryIncrement(ConcurrentHashMap<String, SlidingWindowCounter> counters, String key, int limit, long now) {
+        if (key == null) {
+            return true;
+        }
+        SlidingWindowCounter counter = counters.get(key);
+        if (counter == null) {
+            if (counters.size() >= maxTrackedKeys) {
+                makeRoom(counters, now);
+            }
+            counter = counters.computeIfAbsent(key, k -> new SlidingWindowCounter());
+        }
+        return counter.tryIncrement(now, windowMillis, limit);
+    }
+
+    //evicts down to nine tenths of the cap, so that the scan is paid once for many new keys and not on every attempt
+    private void makeRoom(ConcurrentHashMap<String, SlidingWindowCounter> counters, long now) {
+        synchronized (counters) {
+            if (counters.size() < maxTrackedKeys) {
+                return;
+            }
+            long window = now / windowMillis;
+            int target = maxTrackedKeys - Math.max(1, maxTrackedKeys / 10);
+            counters.values().removeIf(counter -> counter.isIdle(window));
+            Iterator<SlidingWindowCounter> stale = counters.values().iterator();
+            while (counters.size() > target && stale.hasNext()) {
+                if (stale.next().lastWindow() < window) {
+                    stale.remove();
+                }
+            }
+            Iterator<SlidingWindowCounter> any = counters.values().iterator();
+            while (counters.size() > target && any.hasNext()) {
+                any.next();
+                any.remove();
+            }
+        }
+    }
+
+    private void decrement(ConcurrentHashMap<String, SlidingWindowCounter> counters, String key, long now) {
+        if (key == null) {
+            return;
+        }
+        SlidingWindowCounter counter = counters.get(key);
+        if (counter != null) {
+            counter.decrement(now, windowMillis);
+        }
+    }
+
+    /**
+     * Approximates a sliding window with the counts of the current and the previous fixed window,
+     * weighting the previous count by how much of it still overlaps the sliding window.
+     */
+    private static final class SlidingWindowCounter {
+
+        private final AtomicReference<Slot> slot = new AtomicReference<>(new Slot(0, 0, 0));
+
+        private boolean tryIncrement(long now, long windowMillis, int limit) {
+            long window = now / windowMillis;
+            double elapsed = (double) (now % windowMillis) / windowMillis;
+            Slot current;
+            Slot updated;
+            do {
+                current = slot.get();
+                Slot advanced = current.advance(window);
+                if (advanced.previousCount * (1 - elapsed) + advanced.currentCount >= limit) {
+                    return false;
+                }
+                updated = advanced.plusOne();
+            } while (!slot.compareAndSet(current, updated));
+            return true;
+        }
+
+        private void decrement(long now, long windowMillis) {
+            long window = now / windowMillis;
+            Slot current;
+            Slot updated;
+            do {
+                current = slot.get();
+                updated = current.advance(window).minusOne();
+            } while (!slot.compareAndSet(current, updated));
+        }
+
+        private long lastWindow() {
+            return slot.get().window;
+        }
+
+        private boolean isIdle(long window) {
+            Slot current = slot.get().advance(window);
+            return current.currentCount == 0 && current.previousCount == 0;
+        }
+    }
+
+    private static final class Slot {
+        private final long window;
+        private final int currentCount;
+        private final int previousCount;
+
+        private Slot(long window, int currentCount, int previousCount) {
+            this.window = window;
+            this.currentCount = currentCount;
+            this.previousCount = previousCount;
+        }
+
+        private Slot advance(long toWindow) {
+            if (toWindow <= window) {
+                return this;
+            }
+            return new Slot(toWindow, 0, toWindow == window + 1 ? currentCount : 0);
+        }
+
+        private Slot plusOne() {
+            return new Slot(window, currentCount + 1, previousCount);
+        }
+
+        //the attempt handed back may have been counted in the previous window
+        private Slot minusOne() {
+            if (currentCount > 0) {
+                return new Slot(window, currentCount - 1, previousCount);
+            }
+            return previousCount > 0 ? new Slot(window, 0, previousCount - 1) : this;
+        }
+    }
+}
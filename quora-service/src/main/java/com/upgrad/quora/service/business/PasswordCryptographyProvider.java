@@ -1,15 +1,16 @@
 package com.upgrad.quora.service.business;
 
 
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.security.spec.InvalidKeySpecException;
 import java.util.Base64;
-import java.util.Random;
-import javax.crypto.SecretKey;
 import javax.crypto.SecretKeyFactory;
 import javax.crypto.spec.PBEKeySpec;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 
@@ -17,32 +18,128 @@ import org.springframework.stereotype.Component;
 public class PasswordCryptographyProvider {
 
     private static String SECRET_KEY_ALGORITHM = "PBKDF2WithHmacSHA512";
-    private static int HASHING_ITERATIONS = 1000;
-    private static int HASHING_KEY_LENGTH = 64;
+    /**
+     * Parameters of hashes stored before the parameters were stored alongside the hash.
+     */
+    public static final int LEGACY_HASHING_ITERATIONS = 1000;
+    public static final int LEGACY_HASHING_KEY_LENGTH = 64;
+    private static final int CALIBRATION_ITERATIONS = 10000;
+    private static final int CALIBRATION_ROUNDS = 5;
     private final static char[] hexArray = "0123456789ABCDEF".toCharArray();
 
     /**
-     * This method generates Salt and hashed Password
+     * SecretKeyFactory instances are not thread safe, so every thread keeps its own instead of looking one up per hash.
+     */
+    private static final ThreadLocal<SecretKeyFactory> SECRET_KEY_FACTORY = ThreadLocal.withInitial(() -> {
+        try {
+            return SecretKeyFactory.getInstance(SECRET_KEY_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    });
+
+    /**
+     * One shared generator for all salts. The non-blocking native generator never waits for entropy, the default generator is the fallback.
+     */
+    private static final SecureRandom SECURE_RANDOM = createSecureRandom();
+
+    private final int iterations;
+    private final int keyLength;
+
+    /**
+     * Hashes use a fixed iteration count when one is configured. Otherwise the iteration count is calibrated on this host,
+     * so that one hash takes about the target time, within the configured bounds.
+     */
+    @Autowired
+    public PasswordCryptographyProvider(@Value("${quora.password-hashing.iterations:0}") int iterations,
+                                        @Value("${quora.password-hashing.target-millis:50}") long targetMillis,
+                                        @Value("${quora.password-hashing.min-iterations:10000}") int minIterations,
+                                        @Value("${quora.password-hashing.max-iterations:1000000}") int maxIterations,
+                                        @Value("${quora.password-hashing.key-length:512}") int keyLength) {
+        this.keyLength = keyLength;
+        this.iterations = iterations > 0 ? iterations : calibrate(targetMillis, minIterations, maxIterations, keyLength);
+    }
+
+    /**
+     * A provider with the legacy hashing parameters, without calibration.
+     */
+    public PasswordCryptographyProvider() {
+        this.iterations = LEGACY_HASHING_ITERATIONS;
+        this.keyLength = LEGACY_HASHING_KEY_LENGTH;
+    }
+
+    /**
+     * @return iteration count of hashes generated by {@link #encrypt(String)}
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * @return key length in bits of hashes generated by {@link #encrypt(String)}
+     */
+    public int getKeyLength() {
+        return keyLength;
+    }
+
+    /**
+     * This method checks whether a hash stored with the given parameters is weaker than the hashes generated now.
+     *
+     * @param storedIterations iteration count of the stored hash, null for a legacy hash.
+     * @param storedKeyLength  key length of the stored hash, null for a legacy hash.
+     * @return true if the password should be hashed again.
+     */
+    public boolean needsRehash(final Integer storedIterations, final Integer storedKeyLength) {
+        int hashIterations = storedIterations != null ? storedIterations : LEGACY_HASHING_ITERATIONS;
+        int hashKeyLength = storedKeyLength != null ? storedKeyLength : LEGACY_HASHING_KEY_LENGTH;
+        return hashIterations < iterations || hashKeyLength != keyLength;
+    }
+
+    /**
+     * This method generates Salt and hashed Password with the current parameters
      *
      * @param password char array.
      * @return String array with [0] encoded salt [1] hashed password.
      */
     public String[] encrypt(final String password) {
         byte[] salt = generateSaltBytes();
-        byte[] hashedPassword = hashPassword(password.toCharArray(), salt);
+        byte[] hashedPassword = hashPassword(password.toCharArray(), salt, iterations, keyLength);
         return new String[]{getBase64EncodedBytesAsString(salt), bytesToHex(hashedPassword)};
     }
 
     /**
-     * This method re-generates hashed Password from raw-password and salt.
+     * This method checks a raw-password against a hashed Password without converting the computed hash to hex.
      * This will be used during authentication.
      *
-     * @param password char array.
-     * @param salt     byte array.
-     * @return byte array of hashed password.
+     * @param password         raw password.
+     * @param salt             encoded salt.
+     * @param hashedPassword   hex encoded hashed password.
+     * @param storedIterations iteration count the password was hashed with, null for a legacy hash.
+     * @param storedKeyLength  key length the password was hashed with, null for a legacy hash.
+     * @return true if the password matches the hashed password.
+     */
+    public static boolean matches(final String password, final String salt, final String hashedPassword, final Integer storedIterations, final Integer storedKeyLength) {
+        byte[] expected = hexToBytes(hashedPassword);
+        int hashIterations = storedIterations != null ? storedIterations : LEGACY_HASHING_ITERATIONS;
+        int hashKeyLength = storedKeyLength != null ? storedKeyLength : LEGACY_HASHING_KEY_LENGTH;
+        return expected != null && MessageDigest.isEqual(expected, hashPassword(password.toCharArray(), getBase64DecodedStringAsBytes(salt), hashIterations, hashKeyLength));
+    }
+
+    /**
+     * Measures a hash with a fixed iteration count a few times, and scales the iteration count to the target time from the fastest run.
      */
-    public static String encrypt(final String password, String salt) {
-        return bytesToHex(hashPassword(password.toCharArray(), getBase64DecodedStringAsBytes(salt)));
+    private static int calibrate(long targetMillis, int minIterations, int maxIterations, int keyLength) {
+        char[] password = "calibration".toCharArray();
+        byte[] salt = generateSaltBytes();
+        long fastestNanos = Long.MAX_VALUE;
+        for (int round = 0; round < CALIBRATION_ROUNDS; round++) {
+            long start = System.nanoTime();
+            hashPassword(password, salt, CALIBRATION_ITERATIONS, keyLength);
+            fastestNanos = Math.min(fastestNanos, System.nanoTime() - start);
+        }
+        long calibrated = CALIBRATION_ITERATIONS * targetMillis * 1_000_000L / Math.max(1, fastestNanos);
+        calibrated = calibrated / 1000 * 1000;
+        return (int) Math.max(minIterations, Math.min(maxIterations, calibrated));
     }
 
     /**
@@ -51,28 +148,36 @@ public class PasswordCryptographyProvider {
      * @return 32 bytes long array
      */
     private static byte[] generateSaltBytes() {
-        final Random random = new SecureRandom();
         byte[] saltBytes = new byte[32];
-        random.nextBytes(saltBytes);
+        SECURE_RANDOM.nextBytes(saltBytes);
         return saltBytes;
     }
 
+    private static SecureRandom createSecureRandom() {
+        try {
+            return SecureRandom.getInstance("NativePRNGNonBlocking");
+        } catch (NoSuchAlgorithmException e) {
+            return new SecureRandom();
+        }
+    }
+
     /**
      * This method generates hashed Password
      *
-     * @param password char array.
-     * @param salt     byte array.
+     * @param password   char array.
+     * @param salt       byte array.
+     * @param iterations iteration count.
+     * @param keyLength  key length in bits.
      * @return byte array of hashed password.
      */
-    private static byte[] hashPassword(final char[] password, final byte[] salt) {
+    private static byte[] hashPassword(final char[] password, final byte[] salt, final int iterations, final int keyLength) {
+        PBEKeySpec spec = new PBEKeySpec(password, salt, iterations, keyLength);
         try {
-            SecretKeyFactory skf = SecretKeyFactory.getInstance(SECRET_KEY_ALGORITHM);
-            PBEKeySpec spec = new PBEKeySpec(password, salt, HASHING_ITERATIONS, HASHING_KEY_LENGTH);
-            SecretKey key = skf.generateSecret(spec);
-            byte[] res = key.getEncoded();
-            return res;
-        } catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
+            return SECRET_KEY_FACTORY.get().generateSecret(spec).getEncoded();
+        } catch (InvalidKeySpecException e) {
             throw new RuntimeException(e);
+        } finally {
+            spec.clearPassword();
         }
     }
 
@@ -86,6 +191,25 @@ public class PasswordCryptographyProvider {
         return new String(hexChars);
     }
 
+    /**
+     * Decodes upper or lower case hex into bytes, returns null if the text is not valid hex.
+     */
+    private static byte[] hexToBytes(String hex) {
+        if (hex == null || (hex.length() & 1) != 0) {
+            return null;
+        }
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int j = 0; j < bytes.length; j++) {
+            int high = Character.digit(hex.charAt(j * 2), 16);
+            int low = Character.digit(hex.charAt(j * 2 + 1), 16);
+            if (high < 0 || low < 0) {
+                return null;
+            }
+            bytes[j] = (byte) ((high << 4) | low);
+        }
+        return bytes;
+    }
+
     private static String getBase64EncodedBytesAsString(byte bytes[]) {
         return Base64.getEncoder().encodeToString(bytes);
     }
@@ -0,0 +1,116 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.constants.ErrorConditions;
+import com.upgrad.quora.service.exception.ServiceBusyException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * This class runs password hashing on a dedicated, size capped thread pool with a bounded queue,
+ * so that a burst of sign ups and sign ins cannot occupy every request thread.
+ * Work submitted while the queue is full is rejected immediately instead of waiting.
+ */
+@Component
+public class PasswordHashingExecutor implements MeterBinder {
+
+    private final ThreadPoolExecutor executor;
+
+    private final AtomicLong completedTasks = new AtomicLong();
+    private final AtomicLong rejectedTasks = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong totalHashNanos = new AtomicLong();
+
+    public PasswordHashingExecutor(@Value("${quora.password-hashing.pool-size:0}") int poolSize,
+                                   @Value("${quora.password-hashing.queue-capacity:64}") int queueCapacity) {
+        int threads = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("password-hashing-");
+        threadFactory.setDaemon(true);
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Method takes a hashing task and runs it on the hashing pool
+     * @param task hashing task
+     * @param <T> type of the hashing result
+     * @return future completed with the result of the task, on a hashing thread
+     * @throws ServiceBusyException if the hashing queue is full
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) throws ServiceBusyException {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        long submittedAt = System.nanoTime();
+        try {
+            executor.execute(() -> {
+                long startedAt = System.nanoTime();
+                totalWaitNanos.addAndGet(startedAt - submittedAt);
+                try {
+                    result.complete(task.get());
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                } finally {
+                    totalHashNanos.addAndGet(System.nanoTime() - startedAt);
+                    completedTasks.incrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejectedTasks.incrementAndGet();
+            throw new ServiceBusyException(ErrorConditions.SERVICE_BUSY.getCode(), ErrorConditions.SERVICE_BUSY.getMessage());
+        }
+        return result;
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public long getCompletedCount() {
+        return completedTasks.get();
+    }
+
+    public long getRejectedCount() {
+        return rejectedTasks.get();
+    }
+
+    public double getAverageWaitMillis() {
+        long completed = completedTasks.get();
+        return completed == 0 ? 0 : totalWaitNanos.get() / 1_000_000.0 / completed;
+    }
+
+    public double getAverageHashMillis() {
+        long completed = completedTasks.get();
+        return completed == 0 ? 0 : totalHashNanos.get() / 1_000_000.0 / completed;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("executor.queued", this, PasswordHashingExecutor::getQueueDepth).tag("name", "password-hashing").register(registry);
+        Gauge.builder("executor.active", this, PasswordHashingExecutor::getActiveCount).tag("name", "password-hashing").register(registry);
+        FunctionCounter.builder("executor.rejected", this, PasswordHashingExecutor::getRejectedCount).tag("name", "password-hashing").register(registry);
+        FunctionCounter.builder("executor.completed", this, PasswordHashingExecutor::getCompletedCount).tag("name", "password-hashing").register(registry);
+        Gauge.builder("password.hashing.wait.average", this, PasswordHashingExecutor::getAverageWaitMillis).baseUnit("milliseconds").register(registry);
+        Gauge.builder("password.hashing.hash.average", this, PasswordHashingExecutor::getAverageHashMillis).baseUnit("milliseconds").register(registry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
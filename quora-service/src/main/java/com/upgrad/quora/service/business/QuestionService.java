@@ -3,21 +3,34 @@ package com.upgrad.quora.service.business;
 import com.upgrad.quora.db.dao.QuestionDao;
 import com.upgrad.quora.db.entity.QuestionEntity;
 import com.upgrad.quora.db.entity.UserEntity;
+import com.upgrad.quora.db.projection.QuestionSummary;
+import com.upgrad.quora.db.util.UuidCodec;
 import com.upgrad.quora.service.constants.ErrorConditions;
 import com.upgrad.quora.service.exception.AuthorizationFailedException;
+import com.upgrad.quora.service.exception.BulkRequestTooLargeException;
+import com.upgrad.quora.service.exception.InvalidCursorException;
 import com.upgrad.quora.service.exception.InvalidQuestionException;
 import com.upgrad.quora.service.constants.UserRole;
 import com.upgrad.quora.service.exception.UserNotFoundException;
+import com.upgrad.quora.service.utils.KeysetPage;
+import com.upgrad.quora.service.utils.RequestCoalescer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.annotation.PostConstruct;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
 
 
 @Service
-public class QuestionService {
+public class QuestionService implements MeterBinder {
 
     @Autowired
     QuestionDao questionDao;
@@ -25,6 +38,40 @@ public class QuestionService {
     @Autowired
     UserService userService;
 
+    @Autowired
+    AnswerListCache answerListCache;
+
+    @Value("${quora.pagination.default-page-size:20}")
+    private int defaultPageSize;
+
+    @Value("${quora.pagination.max-page-size:100}")
+    private int maxPageSize;
+
+    @Value("${quora.streaming.fetch-size:500}")
+    private int streamFetchSize;
+
+    @Value("${quora.coalescing.timeout-ms:5000}")
+    private long coalescingTimeoutMillis;
+
+    @Value("${quora.bulk.max-items:1000}")
+    private int bulkMaxItems;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int jdbcBatchSize;
+
+    //concurrent reads of the same page of questions share one query
+    private RequestCoalescer<String, List<QuestionSummary>> questionPageCalls;
+
+    @PostConstruct
+    public void init() {
+        questionPageCalls = new RequestCoalescer<>(coalescingTimeoutMillis);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        questionPageCalls.bindTo(registry, "question-page");
+    }
+
     /**
      * Method takes a question entity and stores it in the database
      * @param token Authorization token
@@ -48,6 +95,33 @@ public class QuestionService {
         }
     }
 
+    /**
+     * Method takes a list of question entities and stores them in the database in JDBC batches, with a single authorization check
+     * @param token Authorization token
+     * @param questions Questions to store in the database
+     * @return Created question entities
+     * @throws BulkRequestTooLargeException if there are more questions than a single request may create
+     */
+    @Transactional(propagation = Propagation.REQUIRED)
+    public List<QuestionEntity> createQuestions (String token, List<QuestionEntity> questions) throws AuthorizationFailedException, BulkRequestTooLargeException {
+        try{
+            UserEntity user = userService.getCurrentUser(token);
+            if(questions.size() > bulkMaxItems){
+                throw new BulkRequestTooLargeException(ErrorConditions.BULK_TOO_LARGE.getCode(), ErrorConditions.BULK_TOO_LARGE.getMessage());
+            }
+            questions.forEach(question -> question.setUser(user));
+            return questionDao.createQuestions(questions, jdbcBatchSize);
+        }
+        catch(AuthorizationFailedException e){
+            if(e.getCode().equals(ErrorConditions.USER_SIGNED_OUT.getCode())){
+                throw new AuthorizationFailedException(ErrorConditions.QUES_CREATE_AUTH_FAILURE.getCode(), ErrorConditions.QUES_CREATE_AUTH_FAILURE.getMessage());
+            }
+            else{
+                throw e;
+            }
+        }
+    }
+
     /**
      * Method takes a questionId as a parameter and fetches the entity from database
      * @param questionId
@@ -65,19 +139,27 @@ public class QuestionService {
     }
 
     /**
-     * Method takes question and user entities as parameters and updates the question in the database if the user is an admin or the question owner
+     * Method takes a question id and new content as parameters and updates the question in the database if the current user is the question owner.
+     * The ownership check is part of the update, the question is only looked up again when the update changed nothing.
      * @param token authorization token
-     * @param question Question to to be removed
+     * @param questionId id of the question to be updated
+     * @param content new content of the question
      * @return Id of the updated question
      * @throws AuthorizationFailedException if logged in user is not the question owner
+     * @throws InvalidQuestionException if a question with input questionId doesn't exist
      */
     @Transactional(propagation = Propagation.REQUIRED)
-    public String editQuestion (String token, QuestionEntity question) throws AuthorizationFailedException {
+    public String editQuestion (String token, String questionId, String content) throws AuthorizationFailedException, InvalidQuestionException {
         try{
             UserEntity user = userService.getCurrentUser(token);
-            if(user.getId().equals(question.getUser().getId())){
-                questionDao.updateQuestion(question);
-                return question.getUuid();
+            UUID uuid = UuidCodec.parse(questionId);
+            if(uuid != null && questionDao.updateQuestionContent(uuid, content, user.getId())){
+                //cached answer listings carry the question content
+                answerListCache.invalidate(uuid);
+                return UuidCodec.format(uuid);
+            }
+            else if(uuid == null || !questionDao.questionExists(uuid)){
+                throw new InvalidQuestionException(ErrorConditions.QUES_NOT_FOUND.getCode(), ErrorConditions.QUES_NOT_FOUND.getMessage());
             }
             else{
                 throw new AuthorizationFailedException(ErrorConditions.QUES_EDIT_UNAUTHORIZED.getCode(), ErrorConditions.QUES_EDIT_UNAUTHORIZED.getMessage());
@@ -93,19 +175,26 @@ public class QuestionService {
     }
 
     /**
-     * Method takes question and user entities as parameters and removes the question from the database if the user is an admin or the question owner
+     * Method takes a question id as a parameter and removes the question from the database if the current user is an admin or the question owner.
+     * The ownership check is part of the delete, the question is only looked up again when the delete removed nothing.
      * @param token authorization token
-     * @param question Question to to be removed
+     * @param questionId id of the question to be removed
      * @return Id of the deleted question
      * @throws AuthorizationFailedException if logged in user is neither an admin nor the question owner
+     * @throws InvalidQuestionException if a question with input questionId doesn't exist
      */
     @Transactional(propagation = Propagation.REQUIRED)
-    public String deleteQuestion (String token, QuestionEntity question) throws AuthorizationFailedException {
+    public String deleteQuestion (String token, String questionId) throws AuthorizationFailedException, InvalidQuestionException {
         try{
             UserEntity user = userService.getCurrentUser(token);
-            if(user.getId().equals(question.getUser().getId()) || user.getRole().equalsIgnoreCase(UserRole.ADMIN.getRole())){
-                questionDao.deleteQuestion(question);
-                return question.getUuid();
+            UUID uuid = UuidCodec.parse(questionId);
+            boolean isAdmin = user.getRole().equalsIgnoreCase(UserRole.ADMIN.getRole());
+            if(uuid != null && questionDao.deleteQuestion(uuid, user.getId(), isAdmin)){
+                answerListCache.invalidate(uuid);
+                return UuidCodec.format(uuid);
+            }
+            else if(uuid == null || !questionDao.questionExists(uuid)){
+                throw new InvalidQuestionException(ErrorConditions.QUES_NOT_FOUND.getCode(), ErrorConditions.QUES_NOT_FOUND.getMessage());
             }
             else{
                 throw new AuthorizationFailedException(ErrorConditions.QUES_DELETE_UNAUTHORIZED.getCode(), ErrorConditions.QUES_DELETE_UNAUTHORIZED.getMessage());
@@ -121,14 +210,23 @@ public class QuestionService {
     }
 
     /**
-     * Method returns a list of all questions available in the database irrespective of owner or posted user
+     * Method returns one page of the questions available in the database irrespective of owner or posted user, newest first
      * @param token Authorization token
-     * @return a list of all questions available in the database, empty list if no questions are available
+     * @param cursor continuation token returned with the previous page, null for the first page
+     * @param limit requested page size, capped at the maximum page size
+     * @return a page of questions, with no questions if none are available
+     * @throws InvalidCursorException if the continuation token is malformed
      */
-    public List<QuestionEntity> getAllQuestions(String token) throws AuthorizationFailedException {
+    @Transactional(readOnly = true)
+    public KeysetPage<QuestionSummary> getAllQuestions(String token, String cursor, Integer limit) throws AuthorizationFailedException, InvalidCursorException {
         try{
             UserEntity user = userService.getCurrentUser(token);
-            return questionDao.getAllQuestions();
+            int pageSize = pageSize(limit);
+            LocalDateTime afterDate = cursor == null ? null : KeysetPage.cursorDate(cursor);
+            Integer afterId = cursor == null ? null : KeysetPage.cursorId(cursor);
+            List<QuestionSummary> questions = questionPageCalls.execute(afterDate + ":" + afterId + ":" + pageSize,
+                    () -> questionDao.getAllQuestions(afterDate, afterId, pageSize + 1));
+            return KeysetPage.of(questions, pageSize, QuestionSummary::getDate, QuestionSummary::getId);
         }
         catch(AuthorizationFailedException e){
             if(e.getCode().equals(ErrorConditions.USER_SIGNED_OUT.getCode())){
@@ -141,15 +239,22 @@ public class QuestionService {
     }
 
     /**
-     * Method returns a list of all questions posted by a specific user
+     * Method returns one page of the questions posted by a specific user, newest first
      * @param token Authorization token
      * @param userId Id of a user whose questions are to be fetched
-     * @return a list of questions posted by the input user, empty list if no questions are available
+     * @param cursor continuation token returned with the previous page, null for the first page
+     * @param limit requested page size, capped at the maximum page size
+     * @return a page of questions posted by the input user, with no questions if none are available
+     * @throws InvalidCursorException if the continuation token is malformed
      */
-    public List<QuestionEntity> getUserQuestions(String token,String userId) throws AuthorizationFailedException, UserNotFoundException {
+    @Transactional(readOnly = true)
+    public KeysetPage<QuestionSummary> getUserQuestions(String token, String userId, String cursor, Integer limit) throws AuthorizationFailedException, UserNotFoundException, InvalidCursorException {
         try{
             UserEntity user = userService.getUserById(token, userId);
-            return questionDao.getUserQuestions(user);
+            int pageSize = pageSize(limit);
+            List<QuestionSummary> questions = cursor == null ? questionDao.getUserQuestions(user, null, null, pageSize + 1)
+                    : questionDao.getUserQuestions(user, KeysetPage.cursorDate(cursor), KeysetPage.cursorId(cursor), pageSize + 1);
+            return KeysetPage.of(questions, pageSize, QuestionSummary::getDate, QuestionSummary::getId);
         }
         catch(AuthorizationFailedException e){
             if(e.getCode().equals(ErrorConditions.USER_SIGNED_OUT.getCode())){
@@ -164,4 +269,39 @@ public class QuestionService {
         }
     }
 
+    /**
+     * Method checks that the current user may list all questions, before a listing is streamed
+     * @param token Authorization token
+     * @throws AuthorizationFailedException if the authorization token is invalid, expired or not found
+     */
+    public void checkQuestionListing(String token) throws AuthorizationFailedException {
+        try{
+            userService.getCurrentUser(token);
+        }
+        catch(AuthorizationFailedException e){
+            if(e.getCode().equals(ErrorConditions.USER_SIGNED_OUT.getCode())){
+                throw new AuthorizationFailedException(ErrorConditions.QUES_GET_ALL_AUTH_FAILURE.getCode(), ErrorConditions.QUES_GET_ALL_AUTH_FAILURE.getMessage());
+            }
+            else{
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Method passes every question available in the database to an action, newest first, without holding all of them in memory
+     * @param action action taking each question
+     */
+    @Transactional(readOnly = true)
+    public void forEachQuestion(Consumer<QuestionSummary> action) {
+        questionDao.forEachQuestion(streamFetchSize, action);
+    }
+
+    private int pageSize(Integer limit) {
+        if (limit == null || limit <= 0) {
+            return defaultPageSize;
+        }
+        return Math.min(limit, maxPageSize);
+    }
+
 }
@@ -0,0 +1,97 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.common.GenericErrorCode;
+import com.upgrad.quora.service.common.UnexpectedException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class holds the server wide keys used to sign and verify access tokens.
+ * A new key becomes current at the start of every rotation period. Older keys are kept for a grace window,
+ * long enough for every token signed with them to expire, so that those tokens can still be verified.
+ * Every key is derived from the configured master secret and its key id, so all servers sharing the secret hold the same ring
+ * and a token carries everything needed to pick its key in the "kid" header.
+ * The master secret has no default, the application does not start unless it is configured.
+ */
+@Component
+public class SigningKeyRing {
+
+    private static final String KEY_DERIVATION_ALGORITHM = "HmacSHA512";
+    private static final String KEY_ID_PREFIX = "k";
+    private static final int MIN_SECRET_BYTES = 32;
+
+    private final byte[] masterSecret;
+    private final long rotationMillis;
+    private final long graceMillis;
+    private final IdGenerator idGenerator;
+
+    private final Map<String, JwtTokenProvider> providers = new ConcurrentHashMap<>();
+
+    private volatile JwtTokenProvider currentProvider;
+
+    public SigningKeyRing(@Value("${quora.auth.jwt.secret}") String masterSecret,
+                          @Value("${quora.auth.jwt.rotation-hours:24}") long rotationHours,
+                          @Value("${quora.auth.token.validity-hours:8}") long graceHours,
+                          IdGenerator idGenerator) {
+        if (masterSecret.trim().length() < MIN_SECRET_BYTES) {
+            throw new IllegalStateException("quora.auth.jwt.secret must be set to at least " + MIN_SECRET_BYTES + " characters");
+        }
+        this.masterSecret = masterSecret.getBytes(StandardCharsets.UTF_8);
+        this.rotationMillis = TimeUnit.HOURS.toMillis(rotationHours);
+        this.graceMillis = TimeUnit.HOURS.toMillis(graceHours);
+        this.idGenerator = idGenerator;
+    }
+
+    /**
+     * Method derives the current key and every older key that is still within its grace window
+     */
+    @PostConstruct
+    @Scheduled(fixedDelayString = "${quora.auth.jwt.rotation-check-interval-ms:60000}")
+    public void rotate() {
+        long now = System.currentTimeMillis();
+        long currentPeriod = now / rotationMillis;
+        long oldestPeriod = Math.max(0, (now - graceMillis) / rotationMillis);
+        for (long period = oldestPeriod; period <= currentPeriod; period++) {
+            String keyId = KEY_ID_PREFIX + period;
+            providers.computeIfAbsent(keyId, id -> new JwtTokenProvider(id, deriveKey(id), idGenerator));
+        }
+        currentProvider = providers.get(KEY_ID_PREFIX + currentPeriod);
+        providers.keySet().removeIf(keyId -> Long.parseLong(keyId.substring(KEY_ID_PREFIX.length())) < oldestPeriod);
+    }
+
+    /**
+     * @return token provider signing with the current key
+     */
+    public JwtTokenProvider getSigningProvider() {
+        return currentProvider;
+    }
+
+    /**
+     * Method takes a key id and returns the token provider for that key
+     * @param keyId key id from the "kid" header of a token
+     * @return token provider for the key, null if the key is unknown or its grace window has passed
+     */
+    public JwtTokenProvider getProvider(String keyId) {
+        return keyId == null ? null : providers.get(keyId);
+    }
+
+    private byte[] deriveKey(String keyId) {
+        try {
+            Mac mac = Mac.getInstance(KEY_DERIVATION_ALGORITHM);
+            mac.init(new SecretKeySpec(masterSecret, KEY_DERIVATION_ALGORITHM));
+            return mac.doFinal(keyId.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new UnexpectedException(GenericErrorCode.GEN_001, e);
+        }
+    }
+}
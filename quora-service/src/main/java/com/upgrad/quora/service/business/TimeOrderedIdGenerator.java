@@ -0,0 +1,63 @@
+package com.upgrad.quora.service.business;
+
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongSupplier;
+
+/**
+ * Generates time-ordered version 7 uuids: 48 bits of unix time in milliseconds, a 12 bit counter and 62 random bits.
+ * Ids generated close in time are close in the uuid indexes, so inserts go to the right edge of the index instead of
+ * splitting pages all over it, and no lock is shared between threads: every thread keeps its own counter and draws its
+ * random bits from ThreadLocalRandom instead of the SecureRandom behind UUID.randomUUID.
+ * Ids of one thread are strictly increasing, ids of different threads within the same millisecond are not ordered.
+ * The random bits are not meant to be unguessable, the ids must therefore never be used as secrets.
+ */
+@Component
+public class TimeOrderedIdGenerator implements IdGenerator {
+
+    private static final long VERSION_7 = 0x7000L;
+    private static final long VARIANT_RFC_4122 = 0x8000000000000000L;
+    private static final int COUNTER_BITS = 12;
+    private static final int MAX_COUNTER = (1 << COUNTER_BITS) - 1;
+
+    private final ThreadLocal<State> state = ThreadLocal.withInitial(State::new);
+
+    private final LongSupplier clock;
+
+    public TimeOrderedIdGenerator() {
+        this(System::currentTimeMillis);
+    }
+
+    //lets tests stop the clock or turn it back
+    TimeOrderedIdGenerator(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public UUID nextId() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        State current = state.get();
+        long now = clock.getAsLong();
+        if (now > current.millis) {
+            current.millis = now;
+            //start low in the counter range so that many ids fit into the same millisecond
+            current.counter = random.nextInt(MAX_COUNTER >> 2);
+        } else if (current.counter < MAX_COUNTER) {
+            current.counter++;
+        } else {
+            //counter exhausted, or the clock went back, borrow the next millisecond to stay increasing
+            current.millis++;
+            current.counter = 0;
+        }
+        long most = (current.millis << 16) | VERSION_7 | current.counter;
+        long least = VARIANT_RFC_4122 | (random.nextLong() >>> 2);
+        return new UUID(most, least);
+    }
+
+    private static final class State {
+        private long millis = -1;
+        private int counter;
+    }
+}
@@ -0,0 +1,122 @@
+package com.upgrad.quora.service.business;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.exceptions.JWTDecodeException;
+import com.upgrad.quora.db.dao.UserDao;
+import com.upgrad.quora.db.util.UuidCodec;
+import com.upgrad.quora.service.utils.BloomFilter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class keeps track of access tokens that must be rejected before they expire, by their token id ("jti" claim).
+ * Lookups go through a Bloom filter first, so the common case of a token that was never revoked is answered without touching the exact set.
+ * Every revocation is stored in the REVOKED_TOKEN table, which survives the delete of the user. The list is rebuilt from that table
+ * and from the signed out sessions at startup and again periodically, so that revocations made on other servers are picked up.
+ */
+@Component
+public class TokenRevocationList {
+
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    @Autowired
+    private UserDao userDao;
+
+    @Value("${quora.auth.revocation.expected-tokens:100000}")
+    private int expectedTokens;
+
+    @Value("${quora.auth.token.validity-hours:8}")
+    private long tokenValidityHours;
+
+    private volatile Map<String, Long> revokedTokens = new ConcurrentHashMap<>();
+
+    private volatile BloomFilter filter;
+
+    /**
+     * Method loads all revoked tokens and signed out sessions that have not expired yet from the database
+     */
+    @PostConstruct
+    public synchronized void load() {
+        Map<String, Long> loaded = new ConcurrentHashMap<>();
+        for (Object[] revoked : userDao.getRevokedTokens()) {
+            loaded.put(UuidCodec.format((UUID) revoked[0]), toEpochMillis((LocalDateTime) revoked[1]));
+        }
+        //sessions signed out before revocations were stored in their own table
+        LocalDateTime loginAfter = LocalDateTime.now().minusHours(tokenValidityHours);
+        for (Object[] session : userDao.getSignedOutAccessTokens(loginAfter)) {
+            String tokenId = tokenId((String) session[0]);
+            if (tokenId != null) {
+                loaded.putIfAbsent(tokenId, toEpochMillis(((LocalDateTime) session[1]).plusHours(tokenValidityHours)));
+            }
+        }
+        revokedTokens = loaded;
+        rebuildFilter();
+    }
+
+    /**
+     * Method marks an access token as revoked until it expires, and stores the revocation within the surrounding transaction
+     * @param accessToken access token to be revoked
+     * @param expiresAtMillis epoch millis at which the access token expires
+     */
+    public synchronized void revoke(String accessToken, long expiresAtMillis) {
+        String tokenId = tokenId(accessToken);
+        if (tokenId == null) {
+            return;
+        }
+        userDao.createRevokedToken(UuidCodec.parse(tokenId), LocalDateTime.ofInstant(Instant.ofEpochMilli(expiresAtMillis), ZoneId.systemDefault()));
+        revokedTokens.put(tokenId, expiresAtMillis);
+        filter.put(tokenId);
+    }
+
+    /**
+     * Method checks whether an access token has been revoked
+     * @param tokenId token id ("jti" claim) of the access token
+     * @return true if the access token was signed out or its user deleted
+     */
+    public boolean isRevoked(String tokenId) {
+        return tokenId != null && filter.mightContain(tokenId) && revokedTokens.containsKey(tokenId);
+    }
+
+    public int size() {
+        return revokedTokens.size();
+    }
+
+    /**
+     * Method deletes expired revocations, which are rejected on their expiry anyway, and reloads the list and its Bloom filter from the database
+     */
+    @Scheduled(fixedDelayString = "${quora.auth.revocation.purge-interval-ms:600000}")
+    public void purgeExpired() {
+        userDao.deleteExpiredRevokedTokens(LocalDateTime.now());
+        load();
+    }
+
+    private synchronized void rebuildFilter() {
+        BloomFilter rebuilt = new BloomFilter(Math.max(expectedTokens, revokedTokens.size() * 2), FALSE_POSITIVE_RATE);
+        revokedTokens.keySet().forEach(rebuilt::put);
+        filter = rebuilt;
+    }
+
+    //token id of an access token issued by the application, null if the token carries none
+    private static String tokenId(String accessToken) {
+        try {
+            UUID tokenId = UuidCodec.parse(JWT.decode(accessToken).getId());
+            return tokenId == null ? null : UuidCodec.format(tokenId);
+        } catch (JWTDecodeException e) {
+            return null;
+        }
+    }
+
+    private static long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
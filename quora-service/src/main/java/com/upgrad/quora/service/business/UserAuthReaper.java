@@ -0,0 +1,77 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.db.dao.UserDao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.PersistenceException;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class periodically deletes sessions from the user_auth table that can no longer be used.
+ * Sessions are deleted in small batches, each in its own short transaction, so that locks are only held briefly.
+ * Signed out sessions are kept until their token would have expired, because the revocation list is rebuilt from them on startup.
+ */
+@Component
+public class UserAuthReaper {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserAuthReaper.class);
+
+    @Autowired
+    private UserDao userDao;
+
+    @Value("${quora.auth.token.validity-hours:8}")
+    private long tokenValidityHours;
+
+    @Value("${quora.auth.reaper.enabled:true}")
+    private boolean enabled;
+
+    @Value("${quora.auth.reaper.batch-size:500}")
+    private int batchSize;
+
+    @Value("${quora.auth.reaper.max-batches:200}")
+    private int maxBatches;
+
+    @Value("${quora.auth.reaper.lock-timeout-ms:1000}")
+    private long lockTimeoutMillis;
+
+    private final AtomicLong deletedCount = new AtomicLong();
+
+    /**
+     * Method deletes expired sessions batch by batch, until a batch comes back short or the batch limit of one run is reached
+     */
+    @Scheduled(initialDelayString = "${quora.auth.reaper.interval-ms:300000}", fixedDelayString = "${quora.auth.reaper.interval-ms:300000}")
+    public void reap() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime loginBefore = now.minusHours(tokenValidityHours);
+        int deleted = 0;
+        try {
+            for (int batch = 0; batch < maxBatches; batch++) {
+                int count = userDao.deleteExpiredUserAuths(now, loginBefore, batchSize, lockTimeoutMillis);
+                deleted += count;
+                if (count < batchSize) {
+                    break;
+                }
+            }
+        } catch (DataAccessException | PersistenceException e) {
+            LOGGER.warn("Reaping expired sessions stopped after {} deletions, retrying on the next run", deleted, e);
+        }
+        deletedCount.addAndGet(deleted);
+        if (deleted > 0) {
+            LOGGER.info("Deleted {} expired sessions", deleted);
+        }
+    }
+
+    public long getDeletedCount() {
+        return deletedCount.get();
+    }
+}
@@ -0,0 +1,77 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.db.dao.UserDao;
+import com.upgrad.quora.db.entity.UserEntity;
+import com.upgrad.quora.service.utils.BloomFilter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.List;
+
+/**
+ * This class keeps Bloom filters of the usernames and emails that are taken, so that sign up can tell a free identifier
+ * apart from a taken one without touching the database in the common case.
+ * A negative answer is definite, a positive answer has to be confirmed with an index probe.
+ * Bloom filters cannot forget values, so identifiers of deleted users stay in the filters until the next periodic rebuild.
+ * An identifier added between the database read and the swap of a rebuild can be missed, the unique constraints on the users table still catch that case.
+ */
+@Component
+public class UserIdentifierFilter {
+
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    @Autowired
+    private UserDao userDao;
+
+    @Value("${quora.signup.identifier-filter.expected-users:1000000}")
+    private int expectedUsers;
+
+    private volatile BloomFilter userNames;
+    private volatile BloomFilter emails;
+
+    /**
+     * Method loads the usernames and emails of all users from the database and replaces the filters
+     */
+    @PostConstruct
+    @Scheduled(initialDelayString = "${quora.signup.identifier-filter.rebuild-interval-ms:3600000}", fixedDelayString = "${quora.signup.identifier-filter.rebuild-interval-ms:3600000}")
+    public void rebuild() {
+        List<Object[]> identifiers = userDao.getUserNamesAndEmails();
+        int capacity = Math.max(expectedUsers, identifiers.size() * 2);
+        BloomFilter newUserNames = new BloomFilter(capacity, FALSE_POSITIVE_RATE);
+        BloomFilter newEmails = new BloomFilter(capacity, FALSE_POSITIVE_RATE);
+        for (Object[] identifier : identifiers) {
+            newUserNames.put((String) identifier[0]);
+            newEmails.put((String) identifier[1]);
+        }
+        userNames = newUserNames;
+        emails = newEmails;
+    }
+
+    /**
+     * Method adds the username and email of a newly stored user to the filters
+     * @param user User Entity that was stored
+     */
+    public void add(UserEntity user) {
+        userNames.put(user.getUserName());
+        emails.put(user.getEmail());
+    }
+
+    /**
+     * @param userName username to be checked
+     * @return false if no user has this username, true if a user might have it
+     */
+    public boolean mightContainUserName(String userName) {
+        return userName != null && userNames.mightContain(userName);
+    }
+
+    /**
+     * @param email email to be checked
+     * @return false if no user has this email, true if a user might have it
+     */
+    public boolean mightContainEmail(String email) {
+        return email != null && emails.mightContain(email);
+    }
+}
@@ -0,0 +1,53 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.constants.ErrorConditions;
+
+/**
+ * Outcome of importing one row of a bulk user import
+ */
+public class UserImportResult {
+
+    private final int row;
+    private final String userName;
+    private final String uuid;
+    private final ErrorConditions error;
+
+    private UserImportResult(int row, String userName, String uuid, ErrorConditions error) {
+        this.row = row;
+        this.userName = userName;
+        this.uuid = uuid;
+        this.error = error;
+    }
+
+    static UserImportResult accepted(int row, String userName, String uuid) {
+        return new UserImportResult(row, userName, uuid, null);
+    }
+
+    static UserImportResult rejected(int row, String userName, ErrorConditions error) {
+        return new UserImportResult(row, userName, null, error);
+    }
+
+    public int getRow() {
+        return row;
+    }
+
+    public String getUserName() {
+        return userName;
+    }
+
+    public String getUuid() {
+        return uuid;
+    }
+
+    public boolean isAccepted() {
+        return error == null;
+    }
+
+    public String getCode() {
+        return error == null ? null : error.getCode();
+    }
+
+    public String getMessage() {
+        return error == null ? null : error.getMessage();
+    }
+}
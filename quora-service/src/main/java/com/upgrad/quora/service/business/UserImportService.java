@@ -0,0 +1,128 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.db.dao.UserDao;
+import com.upgrad.quora.db.entity.UserEntity;
+import com.upgrad.quora.db.util.UuidCodec;
+import com.upgrad.quora.service.constants.ErrorConditions;
+import com.upgrad.quora.service.constants.UserRole;
+import com.upgrad.quora.service.exception.AuthorizationFailedException;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.validation.Validator;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * This class registers many users at once.
+ * Users are read in batches; the passwords of a batch are hashed in parallel on a dedicated fork join pool,
+ * and the batch is then stored with a single COPY and insert, in its own transaction.
+ */
+@Service
+public class UserImportService {
+
+    @Autowired
+    private UserDao userDao;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private PasswordCryptographyProvider cryptographyProvider;
+
+    @Autowired
+    private UserIdentifierFilter userIdentifierFilter;
+
+    @Autowired
+    private Validator validator;
+
+    @Value("${quora.user-import.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${quora.user-import.parallelism:0}")
+    private int parallelism;
+
+    private ForkJoinPool hashingPool;
+
+    @PostConstruct
+    public void start() {
+        hashingPool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        hashingPool.shutdownNow();
+    }
+
+    /**
+     * Method takes the users read from an import file and registers them, if the current user is an admin.
+     * @param token Authorization token of the current logged in user
+     * @param users users in file order, null for a row that could not be read; users are consumed lazily, batch by batch
+     * @return result of every row, in file order
+     * @throws AuthorizationFailedException if the authorization token is invalid, expired or not found, or the current user is not an admin
+     */
+    public List<UserImportResult> importUsers(String token, Iterator<UserEntity> users) throws AuthorizationFailedException {
+        UserEntity currentUser = userService.getCurrentUser(token);
+        if (!currentUser.getRole().equalsIgnoreCase(UserRole.ADMIN.getRole())) {
+            throw new AuthorizationFailedException(ErrorConditions.USER_DELETE_UNAUTHORIZED.getCode(), ErrorConditions.USER_DELETE_UNAUTHORIZED.getMessage());
+        }
+        List<UserImportResult> results = new ArrayList<>();
+        int row = 0;
+        while (users.hasNext()) {
+            List<UserEntity> batch = new ArrayList<>(batchSize);
+            List<Integer> batchRows = new ArrayList<>(batchSize);
+            while (users.hasNext() && batch.size() < batchSize) {
+                UserEntity user = users.next();
+                row++;
+                if (isValid(user)) {
+                    batch.add(user);
+                    batchRows.add(row);
+                }
+                else {
+                    results.add(UserImportResult.rejected(row, user == null ? null : user.getUserName(), ErrorConditions.USER_IMPORT_INVALID_ROW));
+                }
+            }
+            if (!batch.isEmpty()) {
+                importBatch(batch, batchRows, results);
+            }
+        }
+        results.sort((first, second) -> Integer.compare(first.getRow(), second.getRow()));
+        return results;
+    }
+
+    private void importBatch(List<UserEntity> batch, List<Integer> batchRows, List<UserImportResult> results) {
+        hashingPool.submit(() -> batch.parallelStream().forEach(user -> {
+            String[] encryptedTexts = cryptographyProvider.encrypt(user.getPassword());
+            user.setSalt(encryptedTexts[0]);
+            user.setPassword(encryptedTexts[1]);
+            user.setHashIterations(cryptographyProvider.getIterations());
+            user.setHashKeyLength(cryptographyProvider.getKeyLength());
+        })).join();
+        for (Object[] outcome : userDao.importUsers(batch)) {
+            int index = ((Number) outcome[0]).intValue();
+            UserEntity user = batch.get(index);
+            if ((Boolean) outcome[1]) {
+                userIdentifierFilter.add(user);
+                results.add(UserImportResult.accepted(batchRows.get(index), user.getUserName(), UuidCodec.format(user.getUuid())));
+            }
+            else {
+                results.add(UserImportResult.rejected(batchRows.get(index), user.getUserName(),
+                        (Boolean) outcome[2] ? ErrorConditions.USERNAME_ALREADY_EXISTS : ErrorConditions.EMAIL_ALREADY_EXISTS));
+            }
+        }
+    }
+
+    /**
+     * Rows are checked against the column constraints up front, one bad row would otherwise fail the COPY of its whole batch
+     */
+    private boolean isValid(UserEntity user) {
+        return user != null && StringUtils.isNoneBlank(user.getFirstName(), user.getLastName(), user.getUserName(), user.getEmail(), user.getPassword())
+                && validator.validate(user).isEmpty();
+    }
+}
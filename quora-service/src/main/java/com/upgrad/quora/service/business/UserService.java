@@ -3,25 +3,34 @@ package com.upgrad.quora.service.business;
 import com.upgrad.quora.db.dao.UserDao;
 import com.upgrad.quora.db.entity.UserAuthEntity;
 import com.upgrad.quora.db.entity.UserEntity;
+import com.upgrad.quora.db.util.UuidCodec;
 import com.upgrad.quora.service.constants.ErrorConditions;
 import com.upgrad.quora.service.constants.UserRole;
 import com.upgrad.quora.service.exception.*;
+import com.upgrad.quora.service.utils.RequestCoalescer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import org.apache.commons.lang3.StringUtils;
 import org.hibernate.exception.ConstraintViolationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.annotation.PostConstruct;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
-import java.util.Arrays;
-import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @Service
-public class UserService {
+public class UserService implements MeterBinder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserService.class);
 
     @Autowired
     private UserDao userDao;
@@ -29,6 +38,52 @@ public class UserService {
     @Autowired
     PasswordCryptographyProvider cryptographyProvider;
 
+    @Autowired
+    PasswordHashingExecutor passwordHashingExecutor;
+
+    @Autowired
+    DatabaseTaskExecutor databaseTaskExecutor;
+
+    @Autowired
+    LoginAttemptThrottle loginAttemptThrottle;
+
+    @Autowired
+    UserIdentifierFilter userIdentifierFilter;
+
+    @Autowired
+    AuthTokenCache authTokenCache;
+
+    @Autowired
+    AnswerListCache answerListCache;
+
+    @Autowired
+    AccessTokenVerifier accessTokenVerifier;
+
+    @Autowired
+    TokenRevocationList tokenRevocationList;
+
+    @Autowired
+    SigningKeyRing signingKeyRing;
+
+    @Value("${quora.auth.token.validity-hours:8}")
+    private long tokenValidityHours;
+
+    @Value("${quora.coalescing.timeout-ms:5000}")
+    private long coalescingTimeoutMillis;
+
+    //concurrent reads of the profile of the same user share one lookup, of a detached copy that no persistence context manages
+    private RequestCoalescer<String, UserEntity> userProfileCalls;
+
+    @PostConstruct
+    public void init() {
+        userProfileCalls = new RequestCoalescer<>(coalescingTimeoutMillis);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        userProfileCalls.bindTo(registry, "user-profile");
+    }
+
     /**
      * Method takes userId and authorizationToken as paremeter and fetches user information of user with uuid = userId
      * @param userId User Id
@@ -40,7 +95,7 @@ public class UserService {
     public UserEntity getUserById(String token, String userId) throws AuthorizationFailedException, UserNotFoundException {
        try{
            UserEntity user = getCurrentUser(token);
-           user = userDao.getUser(userId);
+           user = userProfileCalls.execute(userId, () -> detachedProfile(userDao.getUser(userId)));
            if(user==null){
                throw new UserNotFoundException(ErrorConditions.USER_NOT_FOUND.getCode(), ErrorConditions.USER_NOT_FOUND.getMessage());
            }
@@ -58,6 +113,29 @@ public class UserService {
         }
     }
 
+    /**
+     * Copies the profile of a user, so that the result shared between the coalesced callers is not an entity managed
+     * by the persistence context of the caller that looked it up. The password hash and salt are left out.
+     */
+    private static UserEntity detachedProfile(UserEntity user) {
+        if (user == null) {
+            return null;
+        }
+        UserEntity profile = new UserEntity();
+        profile.setId(user.getId());
+        profile.setUuid(user.getUuid());
+        profile.setFirstName(user.getFirstName());
+        profile.setLastName(user.getLastName());
+        profile.setUserName(user.getUserName());
+        profile.setEmail(user.getEmail());
+        profile.setCountry(user.getCountry());
+        profile.setAboutMe(user.getAboutMe());
+        profile.setDob(user.getDob());
+        profile.setRole(user.getRole());
+        profile.setContactNumber(user.getContactNumber());
+        return profile;
+    }
+
     /**
      * Method takes authorization token as input and return the current logged in user.
      * @param authorizationToken User's authorization token
@@ -65,6 +143,17 @@ public class UserService {
      * @throws AuthorizationFailedException if the authorization token is invalid, expired or not found.
      */
     public UserEntity getCurrentUser(String authorizationToken) throws AuthorizationFailedException {
+        if (accessTokenVerifier.isEnabled()) {
+            UserEntity verifiedUser = accessTokenVerifier.verify(authorizationToken);
+            if (verifiedUser != null) {
+                return verifiedUser;
+            }
+        }
+        UserEntity cachedUser = authTokenCache.getUser(authorizationToken);
+        if (cachedUser != null) {
+            return cachedUser;
+        }
+        long cacheGeneration = authTokenCache.generation();
         UserAuthEntity userAuthEntity = userDao.getUserAuthToken(authorizationToken);
         if (userAuthEntity == null) {
             throw new AuthorizationFailedException(ErrorConditions.USER_NOT_SIGNED_IN.getCode(), ErrorConditions.USER_NOT_SIGNED_IN.getMessage());
@@ -72,6 +161,7 @@ public class UserService {
                 || userAuthEntity.getExpiresAt().isBefore(LocalDateTime.now())) {
             throw new AuthorizationFailedException(ErrorConditions.USER_GET_AUTH_FAILURE.getCode(), ErrorConditions.USER_GET_AUTH_FAILURE.getMessage());
         } else {
+            authTokenCache.put(userAuthEntity, cacheGeneration);
             return userAuthEntity.getUser();
         }
     }
@@ -90,6 +180,14 @@ public class UserService {
         if(currentUser.getRole().equalsIgnoreCase(UserRole.ADMIN.getRole())){
             UserEntity removeUser = userDao.getUser(userId);
             if(removeUser!=null){
+                authTokenCache.invalidateUser(removeUser.getUuid());
+                //the sessions go with the user, signed tokens would still pass stateless verification unless revoked,
+                //the revocations are stored apart from the sessions and outlive them
+                for (Object[] session : userDao.getUnexpiredAccessTokens(removeUser, LocalDateTime.now().minusHours(tokenValidityHours))) {
+                    tokenRevocationList.revoke((String) session[0], ((LocalDateTime) session[1]).plusHours(tokenValidityHours).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+                }
+                //the answers and questions of the user go with it, and may appear in the listing of any question
+                answerListCache.invalidateAll();
                 return userDao.deleteUser(removeUser);
             }
             else{
@@ -102,18 +200,52 @@ public class UserService {
     }
 
     /**
-     * Methods takes a new user as a parameter and add it to the application database
+     * Methods takes a new user as a parameter and add it to the application database.
+     * Taken usernames and emails are rejected before the password is hashed: the identifier filter answers for free identifiers,
+     * and only identifiers it might contain are probed in the database.
+     * The password is hashed on the password hashing pool, and the user is stored on the database task pool once hashing completes.
      * @param user New User
-     * @return creates User
+     * @return future completed with the created User, or with SignUpRestrictedException if the username/email was taken meanwhile
      * @throws SignUpRestrictedException if new user's username/email is already taken
+     * @throws ServiceBusyException if the password hashing queue is full, the future completes with it if the database task queue is full
+     */
+    public CompletableFuture<UserEntity> createUser(UserEntity user) throws SignUpRestrictedException, ServiceBusyException {
+        if(userIdentifierFilter.mightContainUserName(user.getUserName()) && userDao.getUserByUserName(user.getUserName())!=null){
+            throw new SignUpRestrictedException (ErrorConditions.USERNAME_ALREADY_EXISTS.getCode(),ErrorConditions.USERNAME_ALREADY_EXISTS.getMessage());
+        }
+        if(userIdentifierFilter.mightContainEmail(user.getEmail()) && userDao.getUserByEmail(user.getEmail())!=null){
+            throw new SignUpRestrictedException (ErrorConditions.EMAIL_ALREADY_EXISTS.getCode(),ErrorConditions.EMAIL_ALREADY_EXISTS.getMessage());
+        }
+        String password = user.getPassword();
+        CompletableFuture<UserEntity> result = new CompletableFuture<>();
+        passwordHashingExecutor.submit(() -> cryptographyProvider.encrypt(password)).whenComplete((encryptedTexts, error) -> {
+            if (error != null) {
+                result.completeExceptionally(error);
+                return;
+            }
+            user.setSalt(encryptedTexts[0]);
+            user.setPassword(encryptedTexts[1]);
+            user.setHashIterations(cryptographyProvider.getIterations());
+            user.setHashKeyLength(cryptographyProvider.getKeyLength());
+            databaseTaskExecutor.execute(() -> {
+                try {
+                    result.complete(insertUser(user));
+                } catch (SignUpRestrictedException | RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+            }, result);
+        });
+        return result;
+    }
+
+    /**
+     * Stores the user, the unique constraints still catch identifiers taken between the pre-check and the insert.
      */
-    public UserEntity createUser(UserEntity user) throws SignUpRestrictedException {
-        List<String> encryptedTexts = Arrays.asList(cryptographyProvider.encrypt(user.getPassword()));
-        user.setSalt(encryptedTexts.get(0));
-        user.setPassword(encryptedTexts.get(1));
+    private UserEntity insertUser(UserEntity user) throws SignUpRestrictedException {
         try {
-            user = userDao.createUser(user);
-            return user;
+            UserEntity createdUser = userDao.createUser(user);
+            userIdentifierFilter.add(createdUser);
+            return createdUser;
         }
         catch(DataIntegrityViolationException e){
             if(e.getCause() instanceof ConstraintViolationException){
@@ -133,35 +265,99 @@ public class UserService {
 
     /**
      * Method takes user's login info and logs the user into the application.
+     * Attempts from a username or client address with too many recent failures are rejected before any lookup or hashing,
+     * every other attempt counts as a failure until the password has been checked.
+     * The user is looked up on the calling thread, the password is checked on the password hashing pool,
+     * and the session is stored on the database task pool.
+     * The method is not transactional, a rehashed password and the session are each stored in a transaction of their own.
      * @param userName User's username
      * @param password User's password
-     * @return return User Authentication Information
-     * @throws AuthenticationFailedException if user's login information (username/password) are invalid
+     * @param clientAddress address of the client signing in
+     * @return future completed with the User Authentication Information, or with AuthenticationFailedException if the password is invalid
+     * @throws AuthenticationFailedException if user's login information (username) is invalid
+     * @throws SignInRestrictedException if the username or client address has too many recent failed attempts
+     * @throws ServiceBusyException if the password hashing queue is full, the future completes with it if the database task queue is full
      */
-    @Transactional(propagation = Propagation.REQUIRED)
-    public UserAuthEntity authenticateUser(String userName, String password) throws AuthenticationFailedException {
+    public CompletableFuture<UserAuthEntity> authenticateUser(String userName, String password, String clientAddress) throws AuthenticationFailedException, SignInRestrictedException, ServiceBusyException {
+        if(!loginAttemptThrottle.tryAcquire(userName, clientAddress)){
+            throw new SignInRestrictedException(ErrorConditions.USER_SIGNIN_THROTTLED.getCode(),ErrorConditions.USER_SIGNIN_THROTTLED.getMessage());
+        }
+        //the attempt already counts as a failure, it is only handed back on success or when the password cannot be checked
         UserEntity user = userDao.getUserByEmailOrUserName(userName);
-        if(user!=null){
-            if(user.getPassword().equals(cryptographyProvider.encrypt(password,user.getSalt()))){
-                JwtTokenProvider jwtProvider = new JwtTokenProvider(user.getPassword());
-                UserAuthEntity userAuth = new UserAuthEntity();
-                userAuth.setUser(user);
-                userAuth.setUuid(user.getUuid());
-                userAuth.setLoginAt(LocalDateTime.now());
-                userAuth.setExpiresAt(LocalDateTime.now().plusHours(8));
-                String accessToken = jwtProvider.generateToken(userAuth.getUuid(), ZonedDateTime.of(userAuth.getLoginAt(), ZoneId.of("IST ")), ZonedDateTime.of(userAuth.getExpiresAt(), ZoneId.of("IST ")));
-                userAuth.setAccessToken(accessToken);
-                return userDao.createUserAuth(userAuth);
+        if(user==null){
+            throw new AuthenticationFailedException(ErrorConditions.USERNAME_NOT_FOUND.getCode(),ErrorConditions.USERNAME_NOT_FOUND.getMessage());
+        }
+        CompletableFuture<UserAuthEntity> result = new CompletableFuture<>();
+        CompletableFuture<PasswordCheck> passwordCheck;
+        try {
+            passwordCheck = passwordHashingExecutor.submit(() -> checkPassword(user.getSalt(), user.getPassword(), user.getHashIterations(), user.getHashKeyLength(), password));
+        } catch (ServiceBusyException e) {
+            loginAttemptThrottle.release(userName, clientAddress);
+            throw e;
+        }
+        passwordCheck.whenComplete((check, error) -> {
+            if (error != null) {
+                loginAttemptThrottle.release(userName, clientAddress);
+                result.completeExceptionally(error);
             }
-            else{
-                throw new AuthenticationFailedException(ErrorConditions.USER_WRONG_PASSWORD.getCode(),ErrorConditions.USER_WRONG_PASSWORD.getMessage());
+            else if (!check.matches) {
+                result.completeExceptionally(new AuthenticationFailedException(ErrorConditions.USER_WRONG_PASSWORD.getCode(),ErrorConditions.USER_WRONG_PASSWORD.getMessage()));
             }
+            else {
+                loginAttemptThrottle.recordSuccess(userName, clientAddress);
+                databaseTaskExecutor.execute(() -> {
+                    if (check.salt != null) {
+                        storeRehashedPassword(user, check);
+                    }
+                    try {
+                        result.complete(createUserAuth(user));
+                    } catch (RuntimeException e) {
+                        result.completeExceptionally(e);
+                    }
+                }, result);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Checks the password against the stored hash, and on a match rehashes it if the stored hash parameters are out of date.
+     * Runs on the password hashing pool and only works on values, the user entity is never touched off the calling thread.
+     */
+    private PasswordCheck checkPassword(String salt, String storedHash, Integer hashIterations, Integer hashKeyLength, String password) {
+        if (!PasswordCryptographyProvider.matches(password, salt, storedHash, hashIterations, hashKeyLength)) {
+            return PasswordCheck.MISMATCH;
         }
-        else{
-            throw new AuthenticationFailedException(ErrorConditions.USERNAME_NOT_FOUND.getCode(),ErrorConditions.USERNAME_NOT_FOUND.getMessage());
+        if (cryptographyProvider.needsRehash(hashIterations, hashKeyLength)) {
+            String[] encryptedTexts = cryptographyProvider.encrypt(password);
+            return new PasswordCheck(encryptedTexts[0], encryptedTexts[1], cryptographyProvider.getIterations(), cryptographyProvider.getKeyLength());
+        }
+        return PasswordCheck.MATCH;
+    }
+
+    /**
+     * Stores the new hash in its own transaction. A failure to store it does not fail the sign in, the password is then rehashed on the next sign in.
+     */
+    private void storeRehashedPassword(UserEntity user, PasswordCheck rehash) {
+        try {
+            userDao.updatePasswordHash(user.getId(), rehash.salt, rehash.hash, rehash.hashIterations, rehash.hashKeyLength);
+        } catch (RuntimeException e) {
+            LOGGER.warn("Could not store the rehashed password of user {}", user.getUuid(), e);
         }
     }
 
+    private UserAuthEntity createUserAuth(UserEntity user) {
+        JwtTokenProvider jwtProvider = signingKeyRing.getSigningProvider();
+        UserAuthEntity userAuth = new UserAuthEntity();
+        userAuth.setUser(user);
+        userAuth.setUuid(UuidCodec.format(user.getUuid()));
+        userAuth.setLoginAt(LocalDateTime.now());
+        userAuth.setExpiresAt(userAuth.getLoginAt().plusHours(tokenValidityHours));
+        String accessToken = jwtProvider.generateToken(userAuth.getUuid(), user.getId(), user.getRole(), ZonedDateTime.of(userAuth.getLoginAt(), ZoneId.systemDefault()), ZonedDateTime.of(userAuth.getExpiresAt(), ZoneId.systemDefault()));
+        userAuth.setAccessToken(accessToken);
+        return userDao.createUserAuth(userAuth);
+    }
+
     /**
      * Method takes the authorization token and logs a user out of the application
      * @param authorizationToken authorization token
@@ -172,6 +368,8 @@ public class UserService {
     public UserEntity invalidateAuthorization(String authorizationToken) throws SignOutRestrictedException {
         UserAuthEntity userAuth = userDao.getUserAuthToken(authorizationToken);
         if(userAuth != null){
+            authTokenCache.invalidate(authorizationToken);
+            tokenRevocationList.revoke(authorizationToken, userAuth.getExpiresAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
             userAuth.setExpiresAt(LocalDateTime.now());
             userAuth.setLogoutAt(LocalDateTime.now());
             return userDao.updateUserAuth(userAuth).getUser();
@@ -180,4 +378,32 @@ public class UserService {
             throw new SignOutRestrictedException(ErrorConditions.USER_SIGNOUT_ERROR.getCode(),ErrorConditions.USER_SIGNOUT_ERROR.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    //outcome of a password check, with the new salt, hash and hash parameters if the password was rehashed
+    private static final class PasswordCheck {
+        private static final PasswordCheck MISMATCH = new PasswordCheck(false);
+        private static final PasswordCheck MATCH = new PasswordCheck(true);
+
+        private final boolean matches;
+        private final String salt;
+        private final String hash;
+        private final Integer hashIterations;
+        private final Integer hashKeyLength;
+
+        private PasswordCheck(boolean matches) {
+            this.matches = matches;
+            this.salt = null;
+            this.hash = null;
+            this.hashIterations = null;
+            this.hashKeyLength = null;
+        }
+
+        private PasswordCheck(String salt, String hash, Integer hashIterations, Integer hashKeyLength) {
+            this.matches = true;
+            this.salt = salt;
+            this.hash = hash;
+            this.hashIterations = hashIterations;
+            this.hashKeyLength = hashKeyLength;
+        }
+    }
+}
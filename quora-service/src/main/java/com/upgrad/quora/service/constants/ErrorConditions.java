@@ -8,6 +8,7 @@ public enum ErrorConditions {
     //userSignin
     USERNAME_NOT_FOUND("ATH-001","This username does not exist"),
     USER_WRONG_PASSWORD("ATH-002","Password failed"),
+    USER_SIGNIN_THROTTLED("ATH-003","Too many failed sign in attempts, try again later"),
 
     //userSignout
     USER_SIGNOUT_ERROR("SGR-001","User is not Signed in"),
@@ -22,6 +23,9 @@ public enum ErrorConditions {
     USER_DELETE_UNAUTHORIZED("ATHR-003","Unauthorized Access, Entered user is not an admin"),
     USER_DELETE_FAILURE("USR-001","User with entered uuid to be deleted does not exist"),
 
+    //userImport, a non admin is rejected with USER_DELETE_UNAUTHORIZED
+    USER_IMPORT_INVALID_ROW("IMP-001","Row is malformed, misses first name, last name, username, email or password, or has a value that is too long"),
+
     //createQuestion
     QUES_CREATE_AUTH_FAILURE("ATHR-002","User is signed out.Sign in first to post a question"),
 
@@ -56,7 +60,16 @@ public enum ErrorConditions {
 
     //getAllAnswersToQuestion
     ANS_GET_AUTH_FAILURE("ATHR-002","User is signed out.Sign in first to get the answers"),
-    ANS_GET_FAILURE("QUES-001","The question with entered uuid whose details are to be seen does not exist");
+    ANS_GET_FAILURE("QUES-001","The question with entered uuid whose details are to be seen does not exist"),
+
+    //pagination
+    INVALID_CURSOR("PAGE-001","Entered cursor is invalid"),
+
+    //bulk create
+    BULK_TOO_LARGE("BULK-001","Too many items in one request, split them over several requests"),
+
+    //server
+    SERVICE_BUSY("SRV-001","Server is busy, try again later");
 
     private String errorCode;
     private String errorMessage;
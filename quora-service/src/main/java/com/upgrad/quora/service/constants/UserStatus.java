@@ -1,7 +1,7 @@
 package com.upgrad.quora.service.constants;
 
 public enum UserStatus {
-    REGISTERED_OK ("USER SUCCESSFULLY REGISTERED"), SIGN_IN_OK ("SIGNED IN SUCCESSFULLY"), SIGN_OUT_OK ("SIGNED OUT SUCCESSFULLY"), DELETED_OK("USER SUCCESSFULLY DELETED");
+    REGISTERED_OK ("USER SUCCESSFULLY REGISTERED"), SIGN_IN_OK ("SIGNED IN SUCCESSFULLY"), SIGN_OUT_OK ("SIGNED OUT SUCCESSFULLY"), DELETED_OK("USER SUCCESSFULLY DELETED"), IMPORT_ACCEPTED("ACCEPTED"), IMPORT_REJECTED("REJECTED");
     private String textStatus;
     UserStatus(String textStatus){
         this.textStatus = textStatus;
@@ -0,0 +1,42 @@
+package com.upgrad.quora.service.exception;
+
+import java.io.PrintStream;
+import java.io.PrintWriter;
+
+/**
+ * BulkRequestTooLargeException is thrown when a bulk request carries more items than a single request may create.
+ */
+public class BulkRequestTooLargeException extends Exception {
+    private final String code;
+    private final String errorMessage;
+
+    public BulkRequestTooLargeException(final String code, final String errorMessage) {
+        this.code = code;
+        this.errorMessage = errorMessage;
+    }
+
+    @Override
+    public void printStackTrace() {
+        super.printStackTrace();
+    }
+
+    @Override
+    public void printStackTrace(PrintStream s) {
+        super.printStackTrace(s);
+    }
+
+    @Override
+    public void printStackTrace(PrintWriter s) {
+        super.printStackTrace(s);
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+}
+
@@ -0,0 +1,88 @@
+package com.upgrad.quora.service.utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A thread safe Bloom filter of strings.
+ * A negative answer from {@link #mightContain(String)} is definite, a positive answer has to be confirmed against an exact source.
+ */
+public class BloomFilter {
+
+    private final AtomicLongArray bits;
+    private final int numBits;
+    private final int numHashes;
+
+    /**
+     * @param expectedInsertions number of values the filter is sized for
+     * @param falsePositiveRate  desired probability of a false positive once the expected number of values has been added
+     */
+    public BloomFilter(int expectedInsertions, double falsePositiveRate) {
+        int expected = Math.max(1, expectedInsertions);
+        long optimalBits = (long) Math.ceil(-expected * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.max(1, Math.min((optimalBits + 63) / 64, Integer.MAX_VALUE / 64));
+        this.bits = new AtomicLongArray(words);
+        this.numBits = words * 64;
+        this.numHashes = Math.max(1, (int) Math.round((double) numBits / expected * Math.log(2)));
+    }
+
+    /**
+     * Method adds a value to the filter
+     * @param value value to be added
+     */
+    public void put(String value) {
+        long hash = hash(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < numHashes; i++) {
+            int index = bitIndex(h1 + i * h2);
+            long mask = 1L << index;
+            int word = index >>> 6;
+            long current;
+            do {
+                current = bits.get(word);
+                if ((current & mask) != 0) {
+                    break;
+                }
+            } while (!bits.compareAndSet(word, current, current | mask));
+        }
+    }
+
+    /**
+     * Method checks whether a value may have been added to the filter
+     * @param value value to be checked
+     * @return false if the value has definitely not been added, true if it may have been
+     */
+    public boolean mightContain(String value) {
+        long hash = hash(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < numHashes; i++) {
+            int index = bitIndex(h1 + i * h2);
+            if ((bits.get(index >>> 6) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int bitIndex(int combinedHash) {
+        return (combinedHash < 0 ? ~combinedHash : combinedHash) % numBits;
+    }
+
+    /**
+     * 64 bit FNV-1a over the characters of the value, followed by the MurmurHash3 finalizer to spread the bits.
+     */
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,207 @@
+package com.upgrad.quora.service.utils;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * A bounded, thread safe in-memory cache where every entry carries its own expiry time.
+ * Reads are lock free: a hit only records its access time on the entry and never restructures the map.
+ * A full cache is trimmed in one pass by a single thread, which drops expired entries and then the least recently used ones
+ * down to nine tenths of the maximum size, so the cost of the pass is shared by many puts. Eviction is therefore approximate,
+ * the cache may briefly hold more entries than its maximum size while another thread is trimming it.
+ * Expired entries are also dropped lazily on read.
+ * Hit, miss and eviction counts are tracked so that the cache effectiveness can be monitored.
+ * @param <K> type of the cache key
+ * @param <V> type of the cached value
+ */
+public class BoundedExpiringCache<K, V> {
+
+    private final ConcurrentHashMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final Object trimLock = new Object();
+    private final int maxSize;
+    private final int trimmedSize;
+    private final long ttlMillis;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maxSize   maximum number of entries held by the cache
+     * @param ttlMillis maximum time an entry may live in the cache, irrespective of its own expiry
+     */
+    public BoundedExpiringCache(int maxSize, long ttlMillis) {
+        if (maxSize <= 0 || ttlMillis <= 0) {
+            throw new IllegalArgumentException("Cache size and time to live must be positive");
+        }
+        this.maxSize = maxSize;
+        this.trimmedSize = maxSize - maxSize / 10;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Method fetches a value from the cache
+     * @param key cache key
+     * @return cached value, null if the key is not cached or the entry has expired
+     */
+    public V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (entry.isExpired(System.currentTimeMillis())) {
+            if (entries.remove(key, entry)) {
+                evictions.increment();
+            }
+            misses.increment();
+            return null;
+        }
+        entry.lastAccess = System.nanoTime();
+        hits.increment();
+        return entry.value;
+    }
+
+    /**
+     * Method stores a value in the cache for the configured time to live
+     * @param key cache key
+     * @param value value to be cached
+     */
+    public void put(K key, V value) {
+        put(key, value, Long.MAX_VALUE);
+    }
+
+    /**
+     * Method stores a value in the cache until the given expiry time or the configured time to live, whichever is earlier.
+     * A full cache makes room by dropping its least recently used entries.
+     * @param key cache key
+     * @param value value to be cached
+     * @param expiresAtMillis epoch millis after which the value must no longer be served
+     */
+    public void put(K key, V value, long expiresAtMillis) {
+        long now = System.currentTimeMillis();
+        long expiresAt = Math.min(expiresAtMillis, now + ttlMillis);
+        if (expiresAt <= now) {
+            return;
+        }
+        entries.put(key, new Entry<>(value, expiresAt));
+        if (entries.size() > maxSize) {
+            trim(now);
+        }
+    }
+
+    /**
+     * Method removes a single key from the cache
+     * @param key cache key
+     */
+    public void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    /**
+     * Method removes every entry whose value matches the given condition
+     * @param condition condition on the cached value
+     */
+    public void invalidateIf(Predicate<V> condition) {
+        entries.values().removeIf(entry -> condition.test(entry.value));
+    }
+
+    /**
+     * Method removes every entry from the cache
+     */
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Method registers the size, hit, miss and eviction counts of the cache with a meter registry, under the usual cache meter names
+     * @param registry meter registry
+     * @param name value of the "cache" tag
+     */
+    public void bindTo(MeterRegistry registry, String name) {
+        Gauge.builder("cache.size", this, BoundedExpiringCache::size).tag("cache", name).register(registry);
+        FunctionCounter.builder("cache.gets", this, BoundedExpiringCache::getHitCount).tag("cache", name).tag("result", "hit").register(registry);
+        FunctionCounter.builder("cache.gets", this, BoundedExpiringCache::getMissCount).tag("cache", name).tag("result", "miss").register(registry);
+        FunctionCounter.builder("cache.evictions", this, BoundedExpiringCache::getEvictionCount).tag("cache", name).register(registry);
+    }
+
+    //the access times are copied before sorting, as concurrent reads keep updating them
+    private void trim(long now) {
+        synchronized (trimLock) {
+            if (entries.size() <= maxSize) {
+                return;
+            }
+            List<Candidate<K, V>> candidates = new ArrayList<>(entries.size());
+            entries.forEach((key, entry) -> {
+                if (entry.isExpired(now)) {
+                    if (entries.remove(key, entry)) {
+                        evictions.increment();
+                    }
+                } else {
+                    candidates.add(new Candidate<>(key, entry));
+                }
+            });
+            int excess = entries.size() - trimmedSize;
+            if (excess <= 0) {
+                return;
+            }
+            candidates.sort(Comparator.comparingLong(candidate -> candidate.lastAccess));
+            for (int i = 0; i < excess && i < candidates.size(); i++) {
+                if (entries.remove(candidates.get(i).key, candidates.get(i).entry)) {
+                    evictions.increment();
+                }
+            }
+        }
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long expiresAt;
+        private volatile long lastAccess = System.nanoTime();
+
+        private Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+    }
+
+    private static final class Candidate<K, V> {
+        private final K key;
+        private final Entry<V> entry;
+        private final long lastAccess;
+
+        private Candidate(K key, Entry<V> entry) {
+            this.key = key;
+            this.entry = entry;
+            this.lastAccess = entry.lastAccess;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.upgrad.quora.service.utils;
+
+/**
+ * CoalescingTimeoutException is thrown to a caller of {@link RequestCoalescer} that gave up waiting for the call of another caller.
+ */
+public class CoalescingTimeoutException extends RuntimeException {
+
+    public CoalescingTimeoutException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,110 @@
+package com.upgrad.quora.service.utils;
+
+import com.upgrad.quora.service.constants.ErrorConditions;
+import com.upgrad.quora.service.exception.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of a listing ordered by (date, id), newest first.
+ * The position after the last item of a page is handed to clients as an opaque continuation token,
+ * which is decoded back into the (date, id) key the next page starts after.
+ * The date is carried with its full time of day, a cursor rounded to the day would skip the rest of that day.
+ * @param <T> type of the listed items
+ */
+public class KeysetPage<T> {
+
+    private final List<T> items;
+    private final String nextCursor;
+
+    private KeysetPage(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Method builds a page from the result of a query that fetched one item more than the page size
+     * @param fetched items fetched, at most pageSize + 1
+     * @param pageSize number of items of a page
+     * @param date date of an item
+     * @param id id of an item
+     * @param <T> type of the listed items
+     * @return page with the first pageSize items, and a continuation token if more items were fetched
+     */
+    public static <T> KeysetPage<T> of(List<T> fetched, int pageSize, Function<T, LocalDateTime> date, Function<T, Integer> id) {
+        if (fetched.size() <= pageSize) {
+            return new KeysetPage<>(fetched, null);
+        }
+        T last = fetched.get(pageSize - 1);
+        return new KeysetPage<>(fetched.subList(0, pageSize), encodeCursor(date.apply(last), id.apply(last)));
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * @return continuation token of the next page, null if this is the last page
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * Method decodes the date part of a continuation token
+     * @param cursor continuation token
+     * @return date of the last item of the previous page
+     * @throws InvalidCursorException if the continuation token is malformed
+     */
+    public static LocalDateTime cursorDate(String cursor) throws InvalidCursorException {
+        String key = decodeCursor(cursor);
+        try {
+            return LocalDateTime.parse(key.substring(0, key.lastIndexOf(':')));
+        } catch (DateTimeParseException e) {
+            throw invalidCursor();
+        }
+    }
+
+    /**
+     * Method decodes the id part of a continuation token
+     * @param cursor continuation token
+     * @return id of the last item of the previous page
+     * @throws InvalidCursorException if the continuation token is malformed
+     */
+    public static int cursorId(String cursor) throws InvalidCursorException {
+        String key = decodeCursor(cursor);
+        try {
+            return Integer.parseInt(key.substring(key.lastIndexOf(':') + 1));
+        } catch (NumberFormatException e) {
+            throw invalidCursor();
+        }
+    }
+
+    //the ISO date time contains ':' itself, the id follows the last one
+    private static String encodeCursor(LocalDateTime date, int id) {
+        String key = date + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decodeCursor(String cursor) throws InvalidCursorException {
+        String key;
+        try {
+            key = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw invalidCursor();
+        }
+        if (key.lastIndexOf(':') < 0) {
+            throw invalidCursor();
+        }
+        return key;
+    }
+
+    private static InvalidCursorException invalidCursor() {
+        return new InvalidCursorException(ErrorConditions.INVALID_CURSOR.getCode(), ErrorConditions.INVALID_CURSOR.getMessage());
+    }
+}
@@ -0,0 +1,112 @@
+package com.upgrad.quora.service.utils;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Lets concurrent callers asking for the same key share a single in-flight call, so that a burst of identical reads
+ * reaches the database once. The first caller runs the call on its own thread, every other caller waits for its result,
+ * or its exception, for at most the configured timeout. A caller that times out fails with {@link CoalescingTimeoutException}
+ * instead of running the call itself, as a slow call is usually slowed down by load that more identical calls would only add to.
+ * Results are shared between threads and must therefore not be modified by the callers.
+ * @param <K> type of the call key
+ * @param <V> type of the call result
+ */
+public class RequestCoalescer<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final long timeoutMillis;
+
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+
+    /**
+     * @param timeoutMillis maximum time a caller waits for the call of another caller
+     */
+    public RequestCoalescer(long timeoutMillis) {
+        if (timeoutMillis <= 0) {
+            throw new IllegalArgumentException("Coalescing timeout must be positive");
+        }
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Method returns the result of the call for a key, joining the call already in flight for the same key if there is one
+     * @param key call key, equal keys must stand for identical calls
+     * @param call the call, only run if no call for the key is in flight
+     * @return result of the call
+     * @throws CoalescingTimeoutException if the call in flight did not complete within the timeout
+     */
+    public V execute(K key, Supplier<V> call) {
+        CompletableFuture<V> own = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, own);
+        if (running == null) {
+            return run(key, own, call);
+        }
+        coalesced.incrementAndGet();
+        try {
+            return running.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            timeouts.incrementAndGet();
+            throw new CoalescingTimeoutException("Coalesced call did not complete within " + timeoutMillis + " ms", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a coalesced call", e);
+        }
+    }
+
+    public long getCallCount() {
+        return calls.get();
+    }
+
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    public long getTimeoutCount() {
+        return timeouts.get();
+    }
+
+    /**
+     * Method registers the call, coalesced and timeout counts with a meter registry
+     * @param registry meter registry
+     * @param name value of the "calls" tag
+     */
+    public void bindTo(MeterRegistry registry, String name) {
+        FunctionCounter.builder("coalescing.calls", this, RequestCoalescer::getCallCount).tag("calls", name).register(registry);
+        FunctionCounter.builder("coalescing.coalesced", this, RequestCoalescer::getCoalescedCount).tag("calls", name).register(registry);
+        FunctionCounter.builder("coalescing.timeouts", this, RequestCoalescer::getTimeoutCount).tag("calls", name).register(registry);
+    }
+
+    private V run(K key, CompletableFuture<V> own, Supplier<V> call) {
+        calls.incrementAndGet();
+        try {
+            V result = call.get();
+            own.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, own);
+        }
+    }
+}
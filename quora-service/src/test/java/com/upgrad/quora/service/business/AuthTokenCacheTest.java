@@ -0,0 +1,88 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.db.entity.UserAuthEntity;
+import com.upgrad.quora.db.entity.UserEntity;
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class AuthTokenCacheTest {
+
+    private final AuthTokenCache cache = new AuthTokenCache(10, 300);
+
+    //This test case passes when the id, uuid and role of the user of a valid access token are served from the cache, without its password and salt.
+    @Test
+    public void getUserReturnsCachedPrincipal() {
+        UserAuthEntity userAuth = userAuth("token", LocalDateTime.now().plusHours(1));
+        cache.put(userAuth, cache.generation());
+        UserEntity cached = cache.getUser("token");
+        assertEquals(userAuth.getUser().getId(), cached.getId());
+        assertEquals(userAuth.getUser().getUuid(), cached.getUuid());
+        assertEquals(userAuth.getUser().getRole(), cached.getRole());
+        assertNull(cached.getPassword());
+        assertNull(cached.getSalt());
+    }
+
+    //This test case passes when the user is no longer served once the access token has expired.
+    @Test
+    public void getUserDropsExpiredToken() throws Exception {
+        UserAuthEntity userAuth = userAuth("token", LocalDateTime.now().plusNanos(50_000_000));
+        cache.put(userAuth, cache.generation());
+        Thread.sleep(100);
+        assertNull(cache.getUser("token"));
+    }
+
+    //This test case passes when a signed out access token is neither served nor cached again.
+    @Test
+    public void signOutInvalidatesToken() {
+        UserAuthEntity userAuth = userAuth("token", LocalDateTime.now().plusHours(1));
+        cache.put(userAuth, cache.generation());
+        cache.invalidate("token");
+        assertNull(cache.getUser("token"));
+        userAuth.setLogoutAt(LocalDateTime.now());
+        cache.put(userAuth, cache.generation());
+        assertNull(cache.getUser("token"));
+    }
+
+    //This test case passes when a token read before a concurrent sign out is not cached after the sign out.
+    @Test
+    public void putAfterInvalidationIsDropped() {
+        UserAuthEntity userAuth = userAuth("token", LocalDateTime.now().plusHours(1));
+        long readGeneration = cache.generation();
+        cache.invalidate("token");
+        cache.put(userAuth, readGeneration);
+        assertNull(cache.getUser("token"));
+    }
+
+    //This test case passes when every access token of a deleted user is removed.
+    @Test
+    public void invalidateUserRemovesAllTokensOfUser() {
+        UserAuthEntity first = userAuth("first", LocalDateTime.now().plusHours(1));
+        UserAuthEntity second = userAuth("second", LocalDateTime.now().plusHours(1));
+        second.setUser(first.getUser());
+        cache.put(first, cache.generation());
+        cache.put(second, cache.generation());
+        cache.invalidateUser(first.getUser().getUuid());
+        assertNull(cache.getUser("first"));
+        assertNull(cache.getUser("second"));
+    }
+
+    private static UserAuthEntity userAuth(String accessToken, LocalDateTime expiresAt) {
+        UserEntity user = new UserEntity();
+        user.setId(1026);
+        user.setUuid(UUID.randomUUID());
+        user.setRole("nonadmin");
+        user.setPassword("password");
+        user.setSalt("salt");
+        UserAuthEntity userAuth = new UserAuthEntity();
+        userAuth.setAccessToken(accessToken);
+        userAuth.setLoginAt(LocalDateTime.now());
+        userAuth.setExpiresAt(expiresAt);
+        userAuth.setUser(user);
+        return userAuth;
+    }
+}
@@ -0,0 +1,73 @@
+package com.upgrad.quora.service.business;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LoginAttemptThrottleTest {
+
+    //This test case passes when a concurrent burst of attempts for one username lets no more attempts through than the limit.
+    @Test
+    public void concurrentBurstIsCappedAtLimit() throws Exception {
+        LoginAttemptThrottle throttle = new LoginAttemptThrottle(10, 1000, 300, 1000);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Callable<Boolean>> attempts = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            String address = "10.0.0." + i;
+            attempts.add(() -> {
+                start.await();
+                return throttle.tryAcquire("victim", address);
+            });
+        }
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (Callable<Boolean> attempt : attempts) {
+            results.add(pool.submit(attempt));
+        }
+        start.countDown();
+        int allowed = 0;
+        for (Future<Boolean> result : results) {
+            if (result.get()) {
+                allowed++;
+            }
+        }
+        pool.shutdown();
+        assertEquals(10, allowed);
+    }
+
+    //This test case passes when a successful sign in clears the failures of the username and hands back the attempt of the address.
+    @Test
+    public void successHandsBackAttempt() {
+        LoginAttemptThrottle throttle = new LoginAttemptThrottle(2, 2, 300, 1000);
+        assertTrue(throttle.tryAcquire("user", "address"));
+        assertTrue(throttle.tryAcquire("user", "address"));
+        assertFalse(throttle.tryAcquire("user", "address"));
+        throttle.recordSuccess("user", "address");
+        assertTrue(throttle.tryAcquire("user", "address"));
+        throttle.release("user", "address");
+        assertTrue(throttle.tryAcquire("other", "address"));
+    }
+
+    //This test case passes when a fresh user can still sign in after the tracked keys have been filled with failing attempts.
+    @Test
+    public void freshUserIsAllowedAtCap() {
+        LoginAttemptThrottle throttle = new LoginAttemptThrottle(2, 2, 300, 10);
+        for (int i = 0; i < 100; i++) {
+            assertTrue(throttle.tryAcquire("attacker" + i, "10.0.0." + i));
+        }
+        assertTrue(throttle.getTrackedKeys() <= 20);
+        assertTrue(throttle.tryAcquire("fresh", "192.168.0.1"));
+        assertTrue(throttle.tryAcquire("fresh", "192.168.0.1"));
+        assertFalse(throttle.tryAcquire("fresh", "192.168.0.1"));
+    }
+}
@@ -0,0 +1,84 @@
+package com.upgrad.quora.service.business;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single threaded throughput of the sign in and sign up hashing paths, i.e. operations per second per core.
+ * The legacy methods reproduce the previous implementation: a SecretKeyFactory lookup per hash, a new SecureRandom per salt
+ * and a hex string comparison of the hashes.
+ * Run with: mvn -pl quora-service test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.upgrad.quora.service.business.PasswordCryptographyProviderBenchmark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(1)
+@State(Scope.Thread)
+public class PasswordCryptographyProviderBenchmark {
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private final PasswordCryptographyProvider provider = new PasswordCryptographyProvider();
+
+    private String password;
+    private String salt;
+    private String hashedPassword;
+
+    @Setup
+    public void setUp() {
+        password = "benchmark-password";
+        String[] encryptedTexts = provider.encrypt(password);
+        salt = encryptedTexts[0];
+        hashedPassword = encryptedTexts[1];
+    }
+
+    @Benchmark
+    public boolean signIn() {
+        return PasswordCryptographyProvider.matches(password, salt, hashedPassword, provider.getIterations(), provider.getKeyLength());
+    }
+
+    @Benchmark
+    public boolean legacySignIn() throws Exception {
+        return hashedPassword.equals(legacyHash(password, Base64.getDecoder().decode(salt)));
+    }
+
+    @Benchmark
+    public String[] signUp() {
+        return provider.encrypt(password);
+    }
+
+    @Benchmark
+    public String[] legacySignUp() throws Exception {
+        byte[] saltBytes = new byte[32];
+        new SecureRandom().nextBytes(saltBytes);
+        return new String[]{Base64.getEncoder().encodeToString(saltBytes), legacyHash(password, saltBytes)};
+    }
+
+    private static String legacyHash(String password, byte[] salt) throws Exception {
+        SecretKeyFactory skf = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA512");
+        byte[] hash = skf.generateSecret(new PBEKeySpec(password.toCharArray(), salt, 1000, 64)).getEncoded();
+        char[] hexChars = new char[hash.length * 2];
+        for (int j = 0; j < hash.length; j++) {
+            int v = hash[j] & 0xFF;
+            hexChars[j * 2] = HEX[v >>> 4];
+            hexChars[j * 2 + 1] = HEX[v & 0x0F];
+        }
+        return new String(hexChars);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder().include(PasswordCryptographyProviderBenchmark.class.getSimpleName()).build();
+        new Runner(options).run();
+    }
+}
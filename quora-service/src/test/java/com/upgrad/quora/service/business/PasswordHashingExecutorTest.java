@@ -0,0 +1,56 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.exception.ServiceBusyException;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class PasswordHashingExecutorTest {
+
+    private final PasswordHashingExecutor executor = new PasswordHashingExecutor(1, 1);
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        executor.shutdown();
+    }
+
+    //This test case passes when work submitted to a busy pool with a full queue is rejected with SRV-001 instead of waiting.
+    @Test
+    public void submitRejectsWhenQueueIsFull() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CompletableFuture<Boolean> running = executor.submit(() -> {
+            started.countDown();
+            return await(release);
+        });
+        started.await(5, TimeUnit.SECONDS);
+        CompletableFuture<Boolean> queued = executor.submit(() -> true);
+        try {
+            executor.submit(() -> true);
+            fail("Expected the hashing pool to reject the task");
+        } catch (ServiceBusyException e) {
+            assertEquals("SRV-001", e.getCode());
+        }
+        assertEquals(1, executor.getRejectedCount());
+        release.countDown();
+        assertEquals(true, running.get(5, TimeUnit.SECONDS));
+        assertEquals(true, queued.get(5, TimeUnit.SECONDS));
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
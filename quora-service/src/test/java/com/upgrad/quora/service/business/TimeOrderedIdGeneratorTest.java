@@ -0,0 +1,55 @@
+package com.upgrad.quora.service.business;
+
+import org.junit.Test;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TimeOrderedIdGeneratorTest {
+
+    private static final long NOW = 1537228800000L;
+
+    //This test case passes when every id carries the version 7 and RFC 4122 variant bits and the current unix time in milliseconds.
+    @Test
+    public void nextIdIsVersion7() {
+        TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator(() -> NOW);
+        for (int i = 0; i < 1000; i++) {
+            UUID id = generator.nextId();
+            assertEquals(7, id.version());
+            assertEquals(2, id.variant());
+            assertEquals(NOW, id.getMostSignificantBits() >>> 16);
+        }
+    }
+
+    //This test case passes when the ids of a thread keep increasing while the clock stands still, also after the counter of the millisecond is exhausted.
+    @Test
+    public void nextIdIncreasesAcrossCounterExhaustion() {
+        TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator(() -> NOW);
+        UUID previous = generator.nextId();
+        //more ids than the 4096 values of the 12 bit counter
+        for (int i = 0; i < 10000; i++) {
+            UUID id = generator.nextId();
+            assertTrue(id + " does not follow " + previous, id.compareTo(previous) > 0);
+            previous = id;
+        }
+        assertTrue("Exhausted counter did not move on to the next millisecond", (previous.getMostSignificantBits() >>> 16) > NOW);
+    }
+
+    //This test case passes when the ids of a thread keep increasing while the clock goes back, and follow the clock again once it has caught up.
+    @Test
+    public void nextIdIncreasesWhenClockGoesBack() {
+        AtomicLong clock = new AtomicLong(NOW);
+        TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator(clock::get);
+        UUID previous = generator.nextId();
+        for (long millis : new long[]{NOW - 1000, NOW - 1000, NOW - 1, NOW, NOW + 1}) {
+            clock.set(millis);
+            UUID id = generator.nextId();
+            assertTrue(id + " does not follow " + previous, id.compareTo(previous) > 0);
+            previous = id;
+        }
+        assertEquals(NOW + 1, previous.getMostSignificantBits() >>> 16);
+    }
+}
@@ -0,0 +1,88 @@
+package com.upgrad.quora.service.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class BoundedExpiringCacheTest {
+
+    //This test case passes when a cached value is served from memory and counted as a hit.
+    @Test
+    public void getReturnsCachedValue() {
+        BoundedExpiringCache<String, String> cache = new BoundedExpiringCache<>(10, 60000);
+        assertNull(cache.get("key"));
+        cache.put("key", "value");
+        assertEquals("value", cache.get("key"));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    //This test case passes when an entry is no longer served once its own expiry time has passed.
+    @Test
+    public void getDropsExpiredEntry() throws Exception {
+        BoundedExpiringCache<String, String> cache = new BoundedExpiringCache<>(10, 60000);
+        cache.put("key", "value", System.currentTimeMillis() + 50);
+        assertEquals("value", cache.get("key"));
+        Thread.sleep(100);
+        assertNull(cache.get("key"));
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    //This test case passes when an entry already past its expiry time is not cached at all.
+    @Test
+    public void putIgnoresExpiredEntry() {
+        BoundedExpiringCache<String, String> cache = new BoundedExpiringCache<>(10, 60000);
+        cache.put("key", "value", System.currentTimeMillis() - 1);
+        assertEquals(0, cache.size());
+    }
+
+    //This test case passes when a full cache drops its least recently used entry to make room for a new one.
+    @Test
+    public void putEvictsLeastRecentlyUsedEntry() {
+        BoundedExpiringCache<String, String> cache = new BoundedExpiringCache<>(2, 60000);
+        cache.put("first", "1");
+        cache.put("second", "2");
+        cache.get("first");
+        cache.put("third", "3");
+        assertEquals(2, cache.size());
+        assertEquals("1", cache.get("first"));
+        assertNull(cache.get("second"));
+        assertEquals("3", cache.get("third"));
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    //This test case passes when a full cache is trimmed to nine tenths of its size in one pass, dropping the least recently used entries.
+    @Test
+    public void putTrimsFullCache() {
+        BoundedExpiringCache<Integer, String> cache = new BoundedExpiringCache<>(10, 60000);
+        for (int i = 0; i < 10; i++) {
+            cache.put(i, "value");
+        }
+        cache.get(0);
+        cache.put(10, "value");
+        assertEquals(9, cache.size());
+        assertEquals(2, cache.getEvictionCount());
+        assertEquals("value", cache.get(0));
+        assertNull(cache.get(1));
+        assertNull(cache.get(2));
+        assertEquals("value", cache.get(10));
+    }
+
+    //This test case passes when invalidated entries are removed by key, by value and all at once.
+    @Test
+    public void invalidateRemovesEntries() {
+        BoundedExpiringCache<String, String> cache = new BoundedExpiringCache<>(10, 60000);
+        cache.put("first", "1");
+        cache.put("second", "2");
+        cache.put("third", "3");
+        cache.invalidate("first");
+        assertNull(cache.get("first"));
+        cache.invalidateIf("2"::equals);
+        assertNull(cache.get("second"));
+        assertEquals("3", cache.get("third"));
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+    }
+}
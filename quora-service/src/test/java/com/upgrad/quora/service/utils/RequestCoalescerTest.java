@@ -0,0 +1,91 @@
+package com.upgrad.quora.service.utils;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class RequestCoalescerTest {
+
+    //This test case passes when a caller joining a call in flight gets its result without running the call again.
+    @Test
+    public void concurrentCallerSharesResult() throws Exception {
+        RequestCoalescer<String, String> coalescer = new RequestCoalescer<>(5000);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        Future<String> first = pool.submit(() -> coalescer.execute("key", () -> {
+            runs.incrementAndGet();
+            started.countDown();
+            await(release);
+            return "value";
+        }));
+        started.await();
+        new Thread(() -> {
+            sleep(100);
+            release.countDown();
+        }).start();
+        assertEquals("value", coalescer.execute("key", () -> {
+            runs.incrementAndGet();
+            return "other";
+        }));
+        assertEquals("value", first.get());
+        pool.shutdown();
+        assertEquals(1, runs.get());
+        assertEquals(1, coalescer.getCoalescedCount());
+    }
+
+    //This test case passes when a caller that times out waiting for a call in flight fails instead of running the call itself.
+    @Test
+    public void timedOutCallerFailsWithoutRunningCall() throws Exception {
+        RequestCoalescer<String, String> coalescer = new RequestCoalescer<>(50);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        Future<String> first = pool.submit(() -> coalescer.execute("key", () -> {
+            runs.incrementAndGet();
+            started.countDown();
+            await(release);
+            return "value";
+        }));
+        started.await();
+        try {
+            coalescer.execute("key", () -> {
+                runs.incrementAndGet();
+                return "other";
+            });
+            fail();
+        } catch (CoalescingTimeoutException e) {
+            assertEquals(1, coalescer.getTimeoutCount());
+        }
+        release.countDown();
+        assertEquals("value", first.get());
+        pool.shutdown();
+        assertEquals(1, runs.get());
+        assertEquals(1, coalescer.getCallCount());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}